@@ -0,0 +1,66 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.core.Attacks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttacksBenchmark {
+  private static final int LOOKUPS = 1024;
+
+  @Param({"magic", "fancy", "pext", "kogge-stone"})
+  private String sliders;
+
+  private final int[] squares = new int[LOOKUPS];
+  private final long[] blockers = new long[LOOKUPS];
+
+  @Setup
+  public void setup() {
+    System.setProperty(Attacks.SLIDERS_PROPERTY, sliders);
+    if (!Attacks.sliders().equals(sliders)) {
+      throw new IllegalStateException("Slider attacks not available - " + sliders);
+    }
+
+    final SplittableRandom random = new SplittableRandom(Positions.SEED);
+
+    for (int i = 0; i < LOOKUPS; i++) {
+      squares[i] = random.nextInt(64);
+      blockers[i] = random.nextLong() & random.nextLong() & random.nextLong();
+    }
+  }
+
+  @Benchmark
+  public long diagonal() {
+    long attacks = 0L;
+    for (int i = 0; i < LOOKUPS; i++) {
+      attacks ^= Attacks.diagonal(squares[i], blockers[i]);
+    }
+    return attacks;
+  }
+
+  @Benchmark
+  public long orthogonal() {
+    long attacks = 0L;
+    for (int i = 0; i < LOOKUPS; i++) {
+      attacks ^= Attacks.orthogonal(squares[i], blockers[i]);
+    }
+    return attacks;
+  }
+}
@@ -0,0 +1,56 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+  private final Board[] boards = new Board[Positions.PERFT.length];
+  private final int[][] games = new int[Positions.PERFT.length][];
+
+  @Setup
+  public void setup() {
+    final SplittableRandom random = new SplittableRandom(Positions.SEED);
+
+    for (int i = 0; i < boards.length; i++) {
+      boards[i] = new Board(Positions.PERFT[i]);
+      games[i] = Positions.game(boards[i], random);
+    }
+  }
+
+  @Benchmark
+  public long makeUndo() {
+    long keys = 0L;
+
+    for (int i = 0; i < boards.length; i++) {
+      final Board board = boards[i];
+      final int[] moves = games[i];
+
+      for (final int move : moves) {
+        board.make(move);
+        keys ^= board.key();
+      }
+      for (int j = moves.length - 1; j >= 0; j--) {
+        board.undo(moves[j]);
+      }
+    }
+    return keys;
+  }
+}
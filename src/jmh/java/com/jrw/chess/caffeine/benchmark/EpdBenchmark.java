@@ -0,0 +1,85 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.Engine;
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.util.Epd;
+import com.jrw.chess.caffeine.util.EpdReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpdBenchmark {
+  @Param({"src/test/resources"})
+  private String directory;
+
+  private final Epd epd = new Epd(new Board(Engine.START_POSITION));
+  private final StringBuilder fen = new StringBuilder();
+  private EpdReader reader;
+  private String[] lines;
+  private int index;
+
+  @Setup
+  public void setup() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final List<String> all = new ArrayList<>();
+
+    try (final DirectoryStream<Path> files =
+        Files.newDirectoryStream(Path.of(directory), "*.epd")) {
+      for (final Path file : files) {
+        bytes.write(Files.readAllBytes(file));
+        all.addAll(Files.readAllLines(file));
+      }
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+    buffer.put(bytes.toByteArray()).flip();
+    reader = new EpdReader(buffer);
+    lines = all.toArray(String[]::new);
+  }
+
+  @Benchmark
+  public long mapped() throws IOException {
+    if (!reader.next(epd)) {
+      reader.rewind();
+      reader.next(epd);
+    }
+    return epd.board().key();
+  }
+
+  @Benchmark
+  public long string() {
+    epd.parse(lines[index]);
+    index = (index + 1) % lines.length;
+    return epd.board().key();
+  }
+
+  @Benchmark
+  public int toFen() {
+    fen.setLength(0);
+    return epd.board().toFen(fen).length();
+  }
+}
@@ -0,0 +1,127 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Evaluation;
+import com.jrw.chess.caffeine.search.MoveOrder;
+import com.jrw.chess.caffeine.search.Network;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+  @Param({"256"})
+  private int hidden;
+
+  @Param({"3"})
+  private int depth;
+
+  private final Board[] boards = new Board[Positions.PERFT.length];
+  private final Board[] networkBoards = new Board[Positions.PERFT.length];
+  private final MoveOrder[][] moves = new MoveOrder[Positions.PERFT.length][];
+  private final MoveOrder[][] networkMoves = new MoveOrder[Positions.PERFT.length][];
+  private Network network;
+  private short[] accumulator;
+
+  @Setup
+  public void setup() {
+    network = network(new SplittableRandom(Positions.SEED));
+    accumulator = new short[2 * hidden];
+
+    for (int i = 0; i < boards.length; i++) {
+      boards[i] = new Board(Positions.PERFT[i]);
+      networkBoards[i] = new Board(Positions.PERFT[i]);
+      networkBoards[i].setNetwork(network);
+      moves[i] = moveOrders(boards[i]);
+      networkMoves[i] = moveOrders(networkBoards[i]);
+    }
+  }
+
+  @Benchmark
+  public long pieceSquare() {
+    long sum = 0L;
+    for (int i = 0; i < boards.length; i++) {
+      sum += walk(boards[i], moves[i], false, depth);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long incremental() {
+    long sum = 0L;
+    for (int i = 0; i < networkBoards.length; i++) {
+      sum += walk(networkBoards[i], networkMoves[i], false, depth);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long refresh() {
+    long sum = 0L;
+    for (int i = 0; i < networkBoards.length; i++) {
+      sum += walk(networkBoards[i], networkMoves[i], true, depth);
+    }
+    return sum;
+  }
+
+  private long walk(
+      final Board board, final MoveOrder[] moves, final boolean refresh, final int depth) {
+    long sum;
+    if (refresh) {
+      network.refresh(board, accumulator);
+      sum = network.evaluate(accumulator, board.sideToMove());
+    } else {
+      sum = Evaluation.evaluate(board);
+    }
+    if (depth == 0) return sum;
+
+    int move;
+    moves[depth].setup();
+    while ((move = moves[depth].next()) != NO_MOVE) {
+      board.make(move);
+      sum += walk(board, moves, refresh, depth - 1);
+      board.undo(move);
+    }
+    return sum;
+  }
+
+  private MoveOrder[] moveOrders(final Board board) {
+    final MoveOrder[] orders = new MoveOrder[depth + 1];
+    for (int i = 1; i <= depth; i++) {
+      orders[i] = new MoveOrder(board);
+    }
+    return orders;
+  }
+
+  private Network network(final SplittableRandom random) {
+    final short[] featureWeights = new short[Network.INPUTS * hidden];
+    final short[] featureBiases = new short[hidden];
+    final short[] outputWeights = new short[2 * hidden];
+
+    for (int i = 0; i < featureWeights.length; i++) {
+      featureWeights[i] = (short) (random.nextInt(255) - 127);
+    }
+    for (int i = 0; i < outputWeights.length; i++) {
+      outputWeights[i] = (short) (random.nextInt(255) - 127);
+    }
+    return new Network(featureWeights, featureBiases, outputWeights, (short) 0);
+  }
+}
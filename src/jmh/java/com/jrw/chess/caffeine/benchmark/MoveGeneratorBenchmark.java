@@ -0,0 +1,88 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.MoveGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+  private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+  private Board[] boards;
+  private Board[] quiet;
+  private Board[] check;
+  private int[][] pseudoLegal;
+
+  @Setup
+  public void setup() {
+    final List<Board> sample = Positions.sample();
+
+    boards = sample.toArray(Board[]::new);
+    quiet = sample.stream().filter(board -> !board.inCheck()).toArray(Board[]::new);
+    check = sample.stream().filter(Board::inCheck).toArray(Board[]::new);
+    pseudoLegal = new int[boards.length][];
+    for (int i = 0; i < boards.length; i++) {
+      final Board board = boards[i];
+      final int count =
+          board.inCheck()
+              ? MoveGenerator.evasionMoves(board, moves)
+              : MoveGenerator.quietMoves(board, moves, MoveGenerator.tacticalMoves(board, moves));
+      pseudoLegal[i] = Arrays.copyOf(moves, count);
+    }
+  }
+
+  @Benchmark
+  public int tactical() {
+    int count = 0;
+    for (final Board board : quiet) {
+      count += MoveGenerator.tacticalMoves(board, moves);
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int quiet() {
+    int count = 0;
+    for (final Board board : quiet) {
+      count += MoveGenerator.quietMoves(board, moves, 0);
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int evasion() {
+    int count = 0;
+    for (final Board board : check) {
+      count += MoveGenerator.evasionMoves(board, moves);
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int isLegal() {
+    int count = 0;
+    for (int i = 0; i < boards.length; i++) {
+      for (final int move : pseudoLegal[i]) {
+        if (MoveGenerator.isLegal(boards[i], move)) count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,49 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.MoveOrder;
+import com.jrw.chess.caffeine.util.Perft;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+  @Param({"0", "1", "2", "3", "4", "5"})
+  private int position;
+
+  @Param({"true", "false"})
+  private boolean legal;
+
+  private Perft perft;
+
+  @Setup
+  public void setup() {
+    System.setProperty(MoveOrder.LEGAL_PROPERTY, String.valueOf(legal));
+    if (MoveOrder.DEFAULT_LEGAL != legal) {
+      throw new IllegalStateException("Move generation mode already loaded - " + legal);
+    }
+
+    perft = new Perft(new Board(Positions.PERFT[position]));
+  }
+
+  @Benchmark
+  public long perft4() {
+    return perft.count(4);
+  }
+}
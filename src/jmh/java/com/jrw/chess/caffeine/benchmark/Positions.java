@@ -0,0 +1,71 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.MoveGenerator;
+import com.jrw.chess.caffeine.search.MoveOrder;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+
+@UtilityClass
+class Positions {
+  final String[] PERFT = {
+    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+  };
+
+  final long SEED = 0x5EEDL;
+
+  private final int GAME_LENGTH = 60;
+  private final int GAMES = 4;
+
+  int[] game(final Board board, final SplittableRandom random) {
+    final MoveOrder order = new MoveOrder(board);
+    final int[] legal = new int[MoveGenerator.MAX_MOVES];
+    final int[] moves = new int[GAME_LENGTH];
+    int length = 0;
+
+    while (length < GAME_LENGTH) {
+      int count = 0;
+      int move;
+
+      order.setup();
+      while ((move = order.next()) != NO_MOVE) legal[count++] = move;
+      if (count == 0) break;
+
+      moves[length] = legal[random.nextInt(count)];
+      board.make(moves[length++]);
+    }
+
+    for (int i = length - 1; i >= 0; i--) {
+      board.undo(moves[i]);
+    }
+    return Arrays.copyOf(moves, length);
+  }
+
+  List<Board> sample() {
+    final SplittableRandom random = new SplittableRandom(SEED);
+    final List<Board> boards = new ArrayList<>();
+
+    for (final String fen : PERFT) {
+      for (int i = 0; i < GAMES; i++) {
+        final Board board = new Board(fen);
+
+        for (final int move : game(board, random)) {
+          boards.add(new Board(board));
+          board.make(move);
+        }
+      }
+    }
+    return boards;
+  }
+}
@@ -0,0 +1,67 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.MoveOrder;
+import com.jrw.chess.caffeine.search.Limits;
+import com.jrw.chess.caffeine.search.Search;
+import com.jrw.chess.caffeine.search.TranspositionTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+  @Param({"0", "1", "2", "3", "4", "5"})
+  private int position;
+
+  @Param({"true", "false"})
+  private boolean legal;
+
+  @Param({"7"})
+  private int depth;
+
+  private Search search;
+  private Limits limits;
+
+  @Setup
+  public void setup() {
+    System.setProperty(MoveOrder.LEGAL_PROPERTY, String.valueOf(legal));
+    if (MoveOrder.DEFAULT_LEGAL != legal) {
+      throw new IllegalStateException("Move generation mode already loaded - " + legal);
+    }
+
+    final Board board = new Board(Positions.PERFT[position]);
+    final PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+
+    search = new Search(board, sink, new TranspositionTable(16));
+    limits = Limits.builder().depth(depth).build();
+  }
+
+  @Setup(Level.Invocation)
+  public void clear() {
+    search.clear();
+  }
+
+  @Benchmark
+  public int search() {
+    return search.bestMove(limits);
+  }
+}
@@ -0,0 +1,73 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class StartupBenchmark {
+  @Param({"target/caffeine-1.0.0-SNAPSHOT.jar"})
+  private String jar;
+
+  @Param({""})
+  private String options;
+
+  private List<String> command;
+  private Process process;
+
+  @Setup
+  public void setup() {
+    command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(Arrays.asList(StringUtils.split(options)));
+    command.add("-jar");
+    command.add(jar);
+  }
+
+  @Benchmark
+  public String ready() throws IOException {
+    process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    final PrintStream in = new PrintStream(process.getOutputStream(), true);
+    final BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+    in.println("uci");
+    in.println("isready");
+
+    String line;
+    while ((line = out.readLine()) != null && !line.equals("readyok")) {}
+    if (line == null) throw new IllegalStateException("Engine exited before readyok");
+    return line;
+  }
+
+  @TearDown(Level.Invocation)
+  public void quit() throws InterruptedException {
+    new PrintStream(process.getOutputStream(), true).println("quit");
+    if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+  }
+}
@@ -0,0 +1,71 @@
+package com.jrw.chess.caffeine.benchmark;
+
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Limits;
+import com.jrw.chess.caffeine.search.Search;
+import com.jrw.chess.caffeine.search.TranspositionTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadBenchmark {
+  @Param({"0", "1", "2", "3", "4", "5"})
+  private int position;
+
+  @Param({"1", "2", "4", "8", "16"})
+  private int threads;
+
+  @Param({"8"})
+  private int depth;
+
+  @Param({"64"})
+  private int megabytes;
+
+  private Search search;
+  private Limits limits;
+
+  @Setup
+  public void setup() {
+    final Board board = new Board(Positions.PERFT[position]);
+    final PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+
+    search = new Search(board, sink, new TranspositionTable(megabytes));
+    search.setThreads(threads);
+    limits = Limits.builder().depth(depth).build();
+  }
+
+  @Setup(Level.Invocation)
+  public void clear() {
+    search.clear();
+  }
+
+  @TearDown
+  public void tearDown() {
+    search.setThreads(1);
+  }
+
+  @Benchmark
+  public int search() {
+    return search.bestMove(limits);
+  }
+}
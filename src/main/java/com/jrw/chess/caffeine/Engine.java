@@ -1,5 +1,376 @@
 package com.jrw.chess.caffeine;
 
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Book;
+import com.jrw.chess.caffeine.search.Limits;
+import com.jrw.chess.caffeine.search.Move;
+import com.jrw.chess.caffeine.search.MoveOrder;
+import com.jrw.chess.caffeine.search.Network;
+import com.jrw.chess.caffeine.search.Search;
+import com.jrw.chess.caffeine.search.SyzygyTables;
+import com.jrw.chess.caffeine.search.TranspositionTable;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.jrw.chess.caffeine.core.Side.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static java.lang.Math.*;
+
 public class Engine {
-  public static void main(final String[] args) {}
+  public static final String START_POSITION =
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+  private static final int MAX_HASH_MB = 8192;
+  private static final int MOVE_OVERHEAD = 50;
+  private static final int DEFAULT_MOVES_TO_GO = 30;
+
+  private final BufferedReader in;
+  private final PrintStream out;
+  private final Board board = new Board(START_POSITION);
+  private final MoveOrder moves = new MoveOrder(board);
+  private final List<String> positionMoves = new ArrayList<>();
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "caffeine-search");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final Search search;
+  private Book book;
+  private String positionFen;
+  private Future<?> searching = CompletableFuture.completedFuture(null);
+  private volatile CountDownLatch stopSignal = new CountDownLatch(0);
+  private Limits ponderLimits;
+
+  public Engine(final BufferedReader in, final PrintStream out) {
+    this.in = in;
+    this.out = out;
+    this.search = new Search(board, out);
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final BufferedReader in =
+        (args.length > 0)
+            ? new BufferedReader(new StringReader(String.join("\n", args)))
+            : new BufferedReader(new InputStreamReader(System.in));
+
+    new Engine(in, System.out).run();
+  }
+
+  public void run() throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (!execute(line)) break;
+    }
+
+    stop();
+    waitForSearch();
+    executor.shutdownNow();
+    if (book != null) book.close();
+  }
+
+  private boolean execute(final String line) {
+    final String[] tokens = StringUtils.split(line);
+    if (tokens.length == 0) return true;
+
+    try {
+      switch (tokens[0]) {
+        case "uci" -> uci();
+        case "isready" -> out.println("readyok");
+        case "ucinewgame" -> newGame();
+        case "position" -> position(tokens);
+        case "go" -> go(tokens);
+        case "stop" -> stop();
+        case "ponderhit" -> ponderHit();
+        case "setoption" -> setOption(tokens);
+        case "quit" -> {
+          return false;
+        }
+        default -> out.println("info string Unknown command - " + line);
+      }
+    } catch (final IllegalArgumentException e) {
+      out.println("info string " + e.getMessage());
+    } catch (final RuntimeException e) {
+      System.err.println("Error in command - " + line);
+      e.printStackTrace();
+    }
+    return true;
+  }
+
+  private void uci() {
+    out.println("id name Caffeine");
+    out.println("id author jwilson82");
+    out.printf(
+        "option name Hash type spin default %d min 1 max %d%n",
+        TranspositionTable.DEFAULT_SIZE_MB, MAX_HASH_MB);
+    out.printf("option name Threads type spin default 1 min 1 max %d%n", Search.MAX_THREADS);
+    out.println("option name Ponder type check default false");
+    out.printf("option name MultiPV type spin default 1 min 1 max %d%n", Search.MAX_MULTI_PV);
+    out.println("option name BookFile type string default <empty>");
+    out.println("option name EvalFile type string default <empty>");
+    out.println("option name SyzygyPath type string default <empty>");
+    out.printf(
+        "option name SyzygyProbeLimit type spin default %d min 0 max %d%n",
+        Search.DEFAULT_PROBE_LIMIT, Search.DEFAULT_PROBE_LIMIT);
+    out.println("uciok");
+  }
+
+  private void newGame() {
+    waitForSearch();
+    search.clear();
+    positionFen = null;
+  }
+
+  private void position(final String[] tokens) {
+    waitForSearch();
+
+    int index = 1;
+    final String fen;
+    if (index < tokens.length && tokens[index].equals("startpos")) {
+      fen = START_POSITION;
+      index++;
+    } else if (index < tokens.length && tokens[index].equals("fen")) {
+      final int start = ++index;
+      while (index < tokens.length && !tokens[index].equals("moves")) index++;
+      fen = String.join(" ", Arrays.copyOfRange(tokens, start, index));
+    } else {
+      throw new IllegalArgumentException("Bad position - " + String.join(" ", tokens));
+    }
+
+    final List<String> moves =
+        (index < tokens.length && tokens[index].equals("moves"))
+            ? Arrays.asList(tokens).subList(index + 1, tokens.length)
+            : List.of();
+
+    if (!fen.equals(positionFen)
+        || moves.size() < positionMoves.size()
+        || !moves.subList(0, positionMoves.size()).equals(positionMoves)) {
+      positionMoves.clear();
+      positionFen = null;
+      try {
+        board.setup(fen);
+      } catch (final IllegalArgumentException e) {
+        board.setup(START_POSITION);
+        throw e;
+      }
+      positionFen = fen;
+    }
+
+    for (final String move : moves.subList(positionMoves.size(), moves.size())) {
+      if (!makeMove(move)) {
+        positionFen = null;
+        throw new IllegalArgumentException("Illegal move - " + move);
+      }
+      positionMoves.add(move);
+    }
+  }
+
+  private boolean makeMove(final String string) {
+    final int parsed = Move.parse(string);
+    int move;
+
+    moves.setup();
+    while ((move = moves.next()) != NO_MOVE) {
+      if (move == parsed) {
+        board.make(move);
+        board.compact();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void go(final String[] tokens) {
+    waitForSearch();
+
+    final Limits.LimitsBuilder limits = Limits.builder();
+    long whiteTime = -1L;
+    long blackTime = -1L;
+    long whiteIncrement = 0L;
+    long blackIncrement = 0L;
+    int movesToGo = DEFAULT_MOVES_TO_GO;
+    boolean infinite = false;
+    boolean ponder = false;
+
+    for (int i = 1; i < tokens.length; i++) {
+      switch (tokens[i]) {
+        case "depth" -> limits.depth(Integer.parseInt(value(tokens, ++i)));
+        case "nodes" -> limits.nodes(Long.parseLong(value(tokens, ++i)));
+        case "movetime" -> limits.moveTime(Long.parseLong(value(tokens, ++i)));
+        case "wtime" -> whiteTime = Long.parseLong(value(tokens, ++i));
+        case "btime" -> blackTime = Long.parseLong(value(tokens, ++i));
+        case "winc" -> whiteIncrement = Long.parseLong(value(tokens, ++i));
+        case "binc" -> blackIncrement = Long.parseLong(value(tokens, ++i));
+        case "movestogo" -> movesToGo = max(1, Integer.parseInt(value(tokens, ++i)));
+        case "infinite" -> infinite = true;
+        case "ponder" -> ponder = true;
+        default -> out.println("info string Ignoring go parameter - " + tokens[i]);
+      }
+    }
+
+    final boolean white = board.sideToMove() == WHITE;
+    final long time = white ? whiteTime : blackTime;
+    if (time >= 0L) {
+      limits.moveTime(allocate(time, white ? whiteIncrement : blackIncrement, movesToGo));
+    }
+
+    final int bookMove = (book == null || infinite || ponder) ? NO_MOVE : book.probe(board);
+    if (bookMove != NO_MOVE) {
+      out.println(bestMove(bookMove, NO_MOVE));
+      return;
+    }
+
+    final Limits searchLimits = ponder ? Limits.INFINITE : limits.build();
+    final CountDownLatch signal = new CountDownLatch((infinite || ponder) ? 1 : 0);
+    ponderLimits = ponder ? limits.build() : null;
+    stopSignal = signal;
+    search.prepare(searchLimits);
+    searching =
+        executor.submit(
+            () -> {
+              final int move = search.bestMove();
+              final int ponderMove = search.ponderMove();
+              awaitStop(signal);
+              out.println(bestMove(move, ponderMove));
+            });
+  }
+
+  private static String value(final String[] tokens, final int index) {
+    if (index >= tokens.length) {
+      throw new IllegalArgumentException("Missing value for " + tokens[index - 1]);
+    }
+    return tokens[index];
+  }
+
+  private String bestMove(final int move, final int ponderMove) {
+    if (move == NO_MOVE) return "bestmove 0000";
+    if (ponderMove == NO_MOVE) return "bestmove " + Move.string(move);
+
+    return "bestmove " + Move.string(move) + " ponder " + Move.string(ponderMove);
+  }
+
+  private void ponderHit() {
+    final Limits limits = ponderLimits;
+    if (limits == null) return;
+
+    ponderLimits = null;
+    search.ponderHit(limits);
+    stopSignal.countDown();
+  }
+
+  private long allocate(final long time, final long increment, final int movesToGo) {
+    final long available = max(1L, time - MOVE_OVERHEAD);
+
+    return min(available, available / movesToGo + increment * 3 / 4);
+  }
+
+  private void stop() {
+    ponderLimits = null;
+    search.stop();
+    stopSignal.countDown();
+  }
+
+  private void setOption(final String[] tokens) {
+    waitForSearch();
+
+    final int nameIndex = Arrays.asList(tokens).indexOf("name");
+    final int valueIndex = Arrays.asList(tokens).indexOf("value");
+    if (nameIndex < 0 || valueIndex < nameIndex) {
+      throw new IllegalArgumentException("Bad option - " + String.join(" ", tokens));
+    }
+
+    final String name = String.join(" ", Arrays.copyOfRange(tokens, nameIndex + 1, valueIndex));
+    final String value =
+        String.join(" ", Arrays.copyOfRange(tokens, valueIndex + 1, tokens.length));
+
+    switch (name.toLowerCase()) {
+      case "hash" -> {
+        final int megabytes = Integer.parseInt(value);
+        if (megabytes < 1 || megabytes > MAX_HASH_MB) {
+          throw new IllegalArgumentException("Bad hash size - " + value);
+        }
+        search.setHashSize(megabytes);
+      }
+      case "threads" -> search.setThreads(Integer.parseInt(value));
+      case "ponder" -> {}
+      case "multipv" -> search.setMultiPv(Integer.parseInt(value));
+      case "bookfile" -> setBook(value);
+      case "evalfile" -> search.setNetwork(network(value));
+      case "syzygypath" -> search.setTablebases(tablebases(value));
+      case "syzygyprobelimit" -> search.setProbeLimit(Integer.parseInt(value));
+      default -> throw new IllegalArgumentException("Unknown option - " + name);
+    }
+  }
+
+  private void setBook(final String path) {
+    try {
+      if (book != null) book.close();
+      book = null;
+      if (path.isBlank() || path.equals("<empty>")) return;
+
+      book = new Book(Path.of(path));
+      out.printf("info string Loaded %d book entries%n", book.entryCount());
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Bad book file - " + path);
+    }
+  }
+
+  private Network network(final String path) {
+    if (path.isBlank() || path.equals("<empty>")) return null;
+
+    try {
+      final Network network = Network.load(Path.of(path));
+      out.printf("info string Loaded network with %d hidden units%n", network.hidden());
+      return network;
+    } catch (final UncheckedIOException e) {
+      throw new IllegalArgumentException("Bad network file - " + path);
+    }
+  }
+
+  private SyzygyTables tablebases(final String path) {
+    if (path.isBlank() || path.equals("<empty>")) return null;
+
+    try {
+      final SyzygyTables tablebases = new SyzygyTables(path);
+      out.printf("info string Found %d tablebases%n", tablebases.count());
+      return tablebases;
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("Bad Syzygy path - " + path);
+    }
+  }
+
+  private void awaitStop(final CountDownLatch signal) {
+    try {
+      signal.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void waitForSearch() {
+    try {
+      searching.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException e) {
+      out.println("info string Search failed - " + e.getCause());
+    }
+  }
 }
@@ -0,0 +1,88 @@
+package com.jrw.chess.caffeine.core;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@UtilityClass
+public class AttackTables {
+  public final String RESOURCE = "/attack-tables.bin";
+  public final String PROPERTY = "caffeine.precomputed";
+
+  final int HEADER_OFFSET = 0;
+  final int BETWEEN_OFFSET = HEADER_OFFSET + 2;
+  final int RAY_OFFSET = BETWEEN_OFFSET + 64 * 64;
+  final int FANCY_OFFSET = RAY_OFFSET + 64 * 64;
+
+  private final long VERSION = 1L;
+
+  private final long[] TABLES =
+      Boolean.parseBoolean(System.getProperty(PROPERTY, "true")) ? read() : null;
+
+  public void main(final String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: AttackTables <output file>");
+      System.exit(1);
+    }
+    if (TABLES != null) {
+      throw new IllegalStateException(
+          "Tables must be computed - run with -D" + PROPERTY + "=false");
+    }
+
+    final FancyMagicAttacks fancy = new FancyMagicAttacks();
+    final long[] tables = new long[FANCY_OFFSET + fancy.size()];
+    tables[HEADER_OFFSET] = VERSION;
+    tables[HEADER_OFFSET + 1] = Magics.checksum();
+    for (int source = 0; source < 64; source++) {
+      for (int target = 0; target < 64; target++) {
+        tables[BETWEEN_OFFSET + source * 64 + target] = Bitboard.between(source, target);
+        tables[RAY_OFFSET + source * 64 + target] = Bitboard.ray(source, target);
+      }
+    }
+    fancy.copyTo(tables, FANCY_OFFSET);
+
+    final ByteBuffer buffer = ByteBuffer.allocate(tables.length * Long.BYTES);
+    buffer.asLongBuffer().put(tables);
+
+    final Path path = Path.of(args[0]);
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    Files.write(path, buffer.array());
+  }
+
+  long[] tables() {
+    return TABLES;
+  }
+
+  boolean load(final int offset, final long[][] target) {
+    if (TABLES == null || TABLES.length < FANCY_OFFSET) return false;
+
+    for (int i = 0; i < target.length; i++) {
+      System.arraycopy(TABLES, offset + i * target[i].length, target[i], 0, target[i].length);
+    }
+    return true;
+  }
+
+  long[] parse(final byte[] bytes) {
+    final long[] tables = new long[bytes.length / Long.BYTES];
+    ByteBuffer.wrap(bytes).asLongBuffer().get(tables);
+
+    final boolean current =
+        tables.length >= BETWEEN_OFFSET
+            && tables[HEADER_OFFSET] == VERSION
+            && tables[HEADER_OFFSET + 1] == Magics.checksum();
+    return current ? tables : null;
+  }
+
+  private long[] read() {
+    try (final InputStream in = AttackTables.class.getResourceAsStream(RESOURCE)) {
+      return (in == null) ? null : parse(in.readAllBytes());
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Cannot read attack tables - " + RESOURCE, e);
+    }
+  }
+}
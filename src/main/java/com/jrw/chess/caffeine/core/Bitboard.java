@@ -50,6 +50,22 @@ public class Bitboard {
     return bitboard ^ Long.lowestOneBit(bitboard);
   }
 
+  public long northFill(long bitboard) {
+    bitboard |= bitboard << 8;
+    bitboard |= bitboard << 16;
+    return bitboard | bitboard << 32;
+  }
+
+  public long southFill(long bitboard) {
+    bitboard |= bitboard >>> 8;
+    bitboard |= bitboard >>> 16;
+    return bitboard | bitboard >>> 32;
+  }
+
+  public long fileFill(final long bitboard) {
+    return northFill(bitboard) | southFill(bitboard);
+  }
+
   public long shift(long bitboard, final int direction) {
     bitboard = (direction > 0) ? bitboard << direction : bitboard >>> -direction;
 
@@ -61,6 +77,13 @@ public class Bitboard {
   }
 
   static {
+    if (!AttackTables.load(AttackTables.BETWEEN_OFFSET, BETWEEN)
+        || !AttackTables.load(AttackTables.RAY_OFFSET, RAY)) {
+      init();
+    }
+  }
+
+  private void init() {
     int[] directions = {NORTH, SOUTH, EAST, WEST, NORTHEAST, NORTHWEST, SOUTHEAST, SOUTHWEST};
 
     for (int source = A1; source <= H8; source++) {
@@ -33,9 +33,21 @@ public class Castling {
   }
 
   public int parse(final String s) {
-    for (int castling = ____; castling <= KQkq; castling++) {
-      if (string(castling).equals(s)) return castling;
+    if (s.equals("-")) return ____;
+
+    int castling = ____;
+    for (int i = 0; i < s.length(); i++) {
+      final int right =
+          switch (s.charAt(i)) {
+            case 'K' -> K___;
+            case 'Q' -> _Q__;
+            case 'k' -> __k_;
+            case 'q' -> ___q;
+            default -> throw new IllegalArgumentException("Cannot parse castling - " + s);
+          };
+      castling |= right;
     }
-    throw new IllegalArgumentException("Cannot parse castling - " + s);
+    if (castling == ____) throw new IllegalArgumentException("Cannot parse castling - " + s);
+    return castling;
   }
 }
@@ -0,0 +1,105 @@
+package com.jrw.chess.caffeine.core;
+
+import static com.jrw.chess.caffeine.core.AttackTables.*;
+import static com.jrw.chess.caffeine.core.Magics.*;
+
+final class FancyMagicAttacks implements SliderAttacks {
+  private static final int ENTRY_SIZE = 4;
+  private static final int ROOK = 64 * ENTRY_SIZE;
+  private static final int MASK = 0;
+  private static final int MAGIC = 1;
+  private static final int SHIFT = 2;
+  private static final int OFFSET = 3;
+
+  private final long[] entries = new long[2 * ROOK];
+  private final long[] attacks;
+
+  FancyMagicAttacks() {
+    final long[] tables = AttackTables.tables();
+    final boolean precomputed = tables != null && tables.length == FANCY_OFFSET + size();
+
+    attacks = precomputed ? tables : new long[size()];
+    int offset = precomputed ? FANCY_OFFSET : 0;
+    for (int square = 0; square < 64; square++) {
+      offset =
+          init(
+              square * ENTRY_SIZE,
+              square,
+              BISHOP_MASKS[square],
+              BISHOP_MAGICS[square],
+              BISHOP_SHIFTS[square],
+              DIAGONAL,
+              offset,
+              precomputed);
+      offset =
+          init(
+              ROOK + square * ENTRY_SIZE,
+              square,
+              ROOK_MASKS[square],
+              ROOK_MAGICS[square],
+              ROOK_SHIFTS[square],
+              ORTHOGONAL,
+              offset,
+              precomputed);
+    }
+  }
+
+  static int size() {
+    int size = 0;
+    for (int square = 0; square < 64; square++) {
+      size += 1 << Long.bitCount(BISHOP_MASKS[square]);
+      size += 1 << Long.bitCount(ROOK_MASKS[square]);
+    }
+    return size;
+  }
+
+  @Override
+  public String name() {
+    return "fancy";
+  }
+
+  @Override
+  public long diagonal(final int square, final long blockers) {
+    return lookup(square * ENTRY_SIZE, blockers);
+  }
+
+  @Override
+  public long orthogonal(final int square, final long blockers) {
+    return lookup(ROOK + square * ENTRY_SIZE, blockers);
+  }
+
+  private long lookup(final int entry, final long blockers) {
+    final int index =
+        index(
+            blockers & entries[entry + MASK], entries[entry + MAGIC], (int) entries[entry + SHIFT]);
+    return attacks[(int) entries[entry + OFFSET] + index];
+  }
+
+  void copyTo(final long[] target, final int offset) {
+    System.arraycopy(attacks, 0, target, offset, size());
+  }
+
+  private int init(
+      final int entry,
+      final int square,
+      final long mask,
+      final long magic,
+      final int shift,
+      final int[] directions,
+      final int offset,
+      final boolean precomputed) {
+    final int size = 1 << Long.bitCount(mask);
+
+    entries[entry + MASK] = mask;
+    entries[entry + MAGIC] = magic;
+    entries[entry + SHIFT] = shift;
+    entries[entry + OFFSET] = offset;
+    if (precomputed) return offset + size;
+
+    for (int i = 0; i < size; i++) {
+      final long blockers = nthCombination(i, mask);
+      attacks[offset + index(blockers, magic, shift)] = slide(square, blockers, directions);
+    }
+    return offset + size;
+  }
+}
@@ -0,0 +1,43 @@
+package com.jrw.chess.caffeine.core;
+
+final class KoggeStoneAttacks implements SliderAttacks {
+  private static final long NOT_A_FILE = 0xFEFEFEFEFEFEFEFEL;
+  private static final long NOT_H_FILE = 0x7F7F7F7F7F7F7F7FL;
+
+  @Override
+  public String name() {
+    return "kogge-stone";
+  }
+
+  @Override
+  public long diagonal(final int square, final long blockers) {
+    final long slider = 1L << square;
+    final long empty = ~blockers;
+
+    return fill(slider, empty, 9, 0xFEFEFEFEFEFEFE00L)
+        | fill(slider, empty, 7, 0x7F7F7F7F7F7F7F00L)
+        | fill(slider, empty, -7, 0x00FEFEFEFEFEFEFEL)
+        | fill(slider, empty, -9, 0x007F7F7F7F7F7F7FL);
+  }
+
+  @Override
+  public long orthogonal(final int square, final long blockers) {
+    final long slider = 1L << square;
+    final long empty = ~blockers;
+
+    return fill(slider, empty, 8, 0xFFFFFFFFFFFFFF00L)
+        | fill(slider, empty, -8, 0x00FFFFFFFFFFFFFFL)
+        | fill(slider, empty, 1, NOT_A_FILE)
+        | fill(slider, empty, -1, NOT_H_FILE);
+  }
+
+  private static long fill(long generator, long propagator, final int shift, final long wrap) {
+    propagator &= wrap;
+    generator |= propagator & Long.rotateLeft(generator, shift);
+    propagator &= Long.rotateLeft(propagator, shift);
+    generator |= propagator & Long.rotateLeft(generator, 2 * shift);
+    propagator &= Long.rotateLeft(propagator, 2 * shift);
+    generator |= propagator & Long.rotateLeft(generator, 4 * shift);
+    return Long.rotateLeft(generator, shift) & wrap;
+  }
+}
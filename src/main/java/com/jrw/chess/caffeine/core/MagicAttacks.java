@@ -0,0 +1,47 @@
+package com.jrw.chess.caffeine.core;
+
+import static com.jrw.chess.caffeine.core.Magics.*;
+
+final class MagicAttacks implements SliderAttacks {
+  private final long[][] bishopAttacks = new long[64][];
+  private final long[][] rookAttacks = new long[64][];
+
+  MagicAttacks() {
+    for (int square = 0; square < 64; square++) {
+      bishopAttacks[square] = new long[1 << Long.bitCount(BISHOP_MASKS[square])];
+      for (int i = 0; i < bishopAttacks[square].length; i++) {
+        final long blockers = nthCombination(i, BISHOP_MASKS[square]);
+        final int index = index(blockers, BISHOP_MAGICS[square], BISHOP_SHIFTS[square]);
+
+        bishopAttacks[square][index] = slide(square, blockers, DIAGONAL);
+      }
+
+      rookAttacks[square] = new long[1 << Long.bitCount(ROOK_MASKS[square])];
+      for (int i = 0; i < rookAttacks[square].length; i++) {
+        final long blockers = nthCombination(i, ROOK_MASKS[square]);
+        final int index = index(blockers, ROOK_MAGICS[square], ROOK_SHIFTS[square]);
+
+        rookAttacks[square][index] = slide(square, blockers, ORTHOGONAL);
+      }
+    }
+  }
+
+  @Override
+  public String name() {
+    return "magic";
+  }
+
+  @Override
+  public long diagonal(final int square, final long blockers) {
+    final int index =
+        index(blockers & BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square]);
+    return bishopAttacks[square][index];
+  }
+
+  @Override
+  public long orthogonal(final int square, final long blockers) {
+    final int index =
+        index(blockers & ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square]);
+    return rookAttacks[square][index];
+  }
+}
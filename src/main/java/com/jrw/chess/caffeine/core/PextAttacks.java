@@ -0,0 +1,80 @@
+package com.jrw.chess.caffeine.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static com.jrw.chess.caffeine.core.Magics.*;
+
+final class PextAttacks implements SliderAttacks {
+  private static final MethodHandle COMPRESS = compress();
+
+  private final int[] bishopOffsets = new int[64];
+  private final int[] rookOffsets = new int[64];
+  private final long[] attacks;
+
+  PextAttacks() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Long.compress is not available");
+    }
+
+    int offset = 0;
+    for (int square = 0; square < 64; square++) {
+      bishopOffsets[square] = offset;
+      offset += 1 << Long.bitCount(BISHOP_MASKS[square]);
+      rookOffsets[square] = offset;
+      offset += 1 << Long.bitCount(ROOK_MASKS[square]);
+    }
+
+    attacks = new long[offset];
+    for (int square = 0; square < 64; square++) {
+      init(bishopOffsets[square], square, BISHOP_MASKS[square], DIAGONAL);
+      init(rookOffsets[square], square, ROOK_MASKS[square], ORTHOGONAL);
+    }
+  }
+
+  static boolean isSupported() {
+    return COMPRESS != null;
+  }
+
+  @Override
+  public String name() {
+    return "pext";
+  }
+
+  @Override
+  public long diagonal(final int square, final long blockers) {
+    return attacks[bishopOffsets[square] + compress(blockers, BISHOP_MASKS[square])];
+  }
+
+  @Override
+  public long orthogonal(final int square, final long blockers) {
+    return attacks[rookOffsets[square] + compress(blockers, ROOK_MASKS[square])];
+  }
+
+  private void init(final int offset, final int square, final long mask, final int[] directions) {
+    final int size = 1 << Long.bitCount(mask);
+
+    for (int i = 0; i < size; i++) {
+      attacks[offset + i] = slide(square, nthCombination(i, mask), directions);
+    }
+  }
+
+  private static int compress(final long blockers, final long mask) {
+    try {
+      return (int) (long) COMPRESS.invokeExact(blockers, mask);
+    } catch (final Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle compress() {
+    try {
+      return MethodHandles.lookup()
+          .findStatic(
+              Long.class, "compress", MethodType.methodType(long.class, long.class, long.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
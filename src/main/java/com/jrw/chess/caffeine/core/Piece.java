@@ -23,4 +23,11 @@ public class Piece {
       default -> "";
     };
   }
+
+  public int parse(final String s) {
+    for (int piece = PAWN; piece <= NO_PIECE; piece++) {
+      if (string(piece).equals(s)) return piece;
+    }
+    throw new IllegalArgumentException("Cannot parse piece - " + s);
+  }
 }
@@ -0,0 +1,9 @@
+package com.jrw.chess.caffeine.core;
+
+public interface SliderAttacks {
+  String name();
+
+  long diagonal(int square, long blockers);
+
+  long orthogonal(int square, long blockers);
+}
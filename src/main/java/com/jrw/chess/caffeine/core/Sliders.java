@@ -0,0 +1,66 @@
+package com.jrw.chess.caffeine.core;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+@UtilityClass
+class Sliders {
+  private final int PROBE_LOOKUPS = 1 << 14;
+  private final int PROBE_ROUNDS = 8;
+
+  // Never read: the timed lookups are folded into it so the JIT cannot elide them.
+  private long checksum;
+
+  SliderAttacks select(final String name) {
+    return switch (name) {
+      case "magic" -> new MagicAttacks();
+      case "fancy" -> new FancyMagicAttacks();
+      case "pext" -> PextAttacks.isSupported() ? new PextAttacks() : new FancyMagicAttacks();
+      case "kogge-stone" -> new KoggeStoneAttacks();
+      case "probe" -> probe();
+      default -> throw new IllegalArgumentException("Bad slider attacks - " + name);
+    };
+  }
+
+  private SliderAttacks probe() {
+    final List<SliderAttacks> candidates = new ArrayList<>();
+    final SplittableRandom random = new SplittableRandom(0x5EEDL);
+    final int[] squares = new int[PROBE_LOOKUPS];
+    final long[] blockers = new long[PROBE_LOOKUPS];
+
+    candidates.add(new FancyMagicAttacks());
+    candidates.add(new MagicAttacks());
+    candidates.add(new KoggeStoneAttacks());
+    if (PextAttacks.isSupported()) candidates.add(new PextAttacks());
+
+    for (int i = 0; i < PROBE_LOOKUPS; i++) {
+      squares[i] = random.nextInt(64);
+      blockers[i] = random.nextLong() & random.nextLong() & random.nextLong();
+    }
+
+    SliderAttacks best = candidates.get(0);
+    long bestTime = Long.MAX_VALUE;
+    for (final SliderAttacks candidate : candidates) {
+      long time = Long.MAX_VALUE;
+
+      for (int round = 0; round < PROBE_ROUNDS; round++) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < PROBE_LOOKUPS; i++) {
+          checksum ^=
+              candidate.diagonal(squares[i], blockers[i])
+                  ^ candidate.orthogonal(squares[i], blockers[i]);
+        }
+        time = Math.min(time, System.nanoTime() - start);
+      }
+
+      if (time < bestTime) {
+        best = candidate;
+        bestTime = time;
+      }
+    }
+    return best;
+  }
+}
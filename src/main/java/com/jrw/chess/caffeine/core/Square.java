@@ -43,8 +43,11 @@ public class Square {
   }
 
   public int parse(final String s) {
-    for (int square = A1; square <= NO_SQUARE; square++) {
-      if (string(square).equals(s)) return square;
+    if (s.equals("-")) return NO_SQUARE;
+    if (s.length() == 2) {
+      final int file = s.charAt(0) - 'a';
+      final int rank = s.charAt(1) - '1';
+      if (file >= 0 && file < 8 && rank >= 0 && rank < 8) return at(file, rank);
     }
     throw new IllegalArgumentException("Cannot parse square - " + s);
   }
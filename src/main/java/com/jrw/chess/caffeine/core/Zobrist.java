@@ -0,0 +1,52 @@
+package com.jrw.chess.caffeine.core;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.SplittableRandom;
+
+@UtilityClass
+public class Zobrist {
+  private final long[][][] PIECE_KEYS = new long[2][6][64];
+  private final long[] CASTLING_KEYS = new long[16];
+  private final long[] EP_KEYS = new long[65];
+  private final long SIDE_KEY;
+
+  public long piece(final int side, final int piece, final int square) {
+    return PIECE_KEYS[side][piece][square];
+  }
+
+  public long material(final int side, final int piece, final int count) {
+    return PIECE_KEYS[side][piece][count];
+  }
+
+  public long castling(final int castling) {
+    return CASTLING_KEYS[castling];
+  }
+
+  public long epSquare(final int square) {
+    return EP_KEYS[square];
+  }
+
+  public long sideToMove(final int side) {
+    return (side == Side.WHITE) ? 0L : SIDE_KEY;
+  }
+
+  static {
+    final SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+
+    for (final long[][] sideKeys : PIECE_KEYS) {
+      for (final long[] pieceKeys : sideKeys) {
+        for (int square = 0; square < 64; square++) {
+          pieceKeys[square] = random.nextLong();
+        }
+      }
+    }
+    for (int castling = Castling.___q; castling <= Castling.KQkq; castling++) {
+      CASTLING_KEYS[castling] = random.nextLong();
+    }
+    for (int square = 0; square < 64; square++) {
+      EP_KEYS[square] = random.nextLong();
+    }
+    SIDE_KEY = random.nextLong();
+  }
+}
@@ -1,7 +1,6 @@
 package com.jrw.chess.caffeine.search;
 
 import com.jrw.chess.caffeine.core.*;
-import org.apache.commons.lang3.StringUtils;
 
 import java.util.Arrays;
 import java.util.Formatter;
@@ -18,10 +17,13 @@ import static com.jrw.chess.caffeine.core.Square.*;
 import static com.jrw.chess.caffeine.core.Rank.*;
 import static com.jrw.chess.caffeine.search.Move.*;
 import static com.jrw.chess.caffeine.search.Search.*;
+import static java.lang.Math.*;
 
 public final class Board {
+  private static final int MAX_HISTORY = 100;
   private static final int[] CASTLING_UPDATE = new int[64];
   private static final long[] EP_TEST = new long[64];
+  private static final char[] PIECE_CHARS = {'p', 'n', 'b', 'r', 'q', 'k'};
 
   static {
     Arrays.fill(CASTLING_UPDATE, KQkq);
@@ -44,80 +46,202 @@ public final class Board {
   private final StackItem[] stack =
       Stream.generate(StackItem::new).limit(MAX_PLY * 2).toArray(StackItem[]::new);
   private int ply;
+  private int startPly;
+  private Network network;
+  private short[][] accumulators;
+  private int staleBelow;
 
   public Board(final String fen) {
     setup(fen);
   }
 
+  public Board(final Board board) {
+    setup(board);
+  }
+
+  public void setup(final Board board) {
+    System.arraycopy(board.sideBitboards, 0, sideBitboards, 0, sideBitboards.length);
+    System.arraycopy(board.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+    System.arraycopy(board.pieces, 0, pieces, 0, pieces.length);
+    ply = board.ply;
+    startPly = board.startPly;
+    for (int i = 0; i <= ply; i++) {
+      stack[i].copy(board.stack[i]);
+    }
+
+    if (board.network == null) {
+      network = null;
+      accumulators = null;
+    } else {
+      if (network != board.network) {
+        network = board.network;
+        accumulators = new short[stack.length][2 * network.hidden()];
+      }
+      for (int i = 0; i <= ply; i++) {
+        System.arraycopy(board.accumulators[i], 0, accumulators[i], 0, accumulators[i].length);
+      }
+      staleBelow = board.staleBelow;
+    }
+  }
+
+  public void setNetwork(final Network network) {
+    this.network = network;
+    if (network == null) {
+      accumulators = null;
+    } else {
+      accumulators = new short[stack.length][2 * network.hidden()];
+      network.refresh(this, accumulators[ply]);
+      staleBelow = ply;
+    }
+  }
+
+  public Network network() {
+    return network;
+  }
+
+  public short[] accumulator() {
+    return accumulators[ply];
+  }
+
   public void setup(final String fen) {
+    setup(fen, 0, fen.length());
+  }
+
+  public int setup(final CharSequence fen, final int start, final int end) {
     reset();
 
-    final String[] tokens = StringUtils.split(fen);
-    if (tokens.length > 0) {
-      int file = A;
-      int rank = EIGHT;
-
-      for (final char c : tokens[0].toCharArray()) {
-        switch (c) {
-          case 'P' -> set(WHITE, PAWN, at(file++, rank));
-          case 'N' -> set(WHITE, KNIGHT, at(file++, rank));
-          case 'B' -> set(WHITE, BISHOP, at(file++, rank));
-          case 'R' -> set(WHITE, ROOK, at(file++, rank));
-          case 'Q' -> set(WHITE, QUEEN, at(file++, rank));
-          case 'K' -> set(WHITE, KING, at(file++, rank));
-          case 'p' -> set(BLACK, PAWN, at(file++, rank));
-          case 'n' -> set(BLACK, KNIGHT, at(file++, rank));
-          case 'b' -> set(BLACK, BISHOP, at(file++, rank));
-          case 'r' -> set(BLACK, ROOK, at(file++, rank));
-          case 'q' -> set(BLACK, QUEEN, at(file++, rank));
-          case 'k' -> set(BLACK, KING, at(file++, rank));
-          case '1' -> file += 1;
-          case '2' -> file += 2;
-          case '3' -> file += 3;
-          case '4' -> file += 4;
-          case '5' -> file += 5;
-          case '6' -> file += 6;
-          case '7' -> file += 7;
-          case '8' -> file += 8;
-          case '/' -> {
-            file = A;
-            rank--;
-          }
-          default -> throw new IllegalArgumentException("Bad FEN (pieces) - " + fen);
-        }
+    int index = skipSpaces(fen, start, end);
+    int file = A;
+    int rank = EIGHT;
+    for (; index < end && !isSpace(fen.charAt(index)); index++) {
+      final char c = fen.charAt(index);
+      if (c == '/') {
+        file = A;
+        rank--;
+      } else if (c >= '1' && c <= '8') {
+        file += c - '0';
+      } else {
+        final int piece = pieceOf(c);
+        if (piece == NO_PIECE || file > H || rank < ONE) throw badFen("pieces", fen, start, end);
+        set(Character.isUpperCase(c) ? WHITE : BLACK, piece, at(file++, rank));
       }
     }
-    if (tokens.length > 1) {
-      try {
-        stack[0].sideToMove = Side.parse(tokens[1]);
-      } catch (final IllegalArgumentException e) {
-        throw new IllegalArgumentException("Bad FEN (side to move) - " + fen, e);
-      }
+    if (count(WHITE, KING) != 1 || count(BLACK, KING) != 1) throw badFen("pieces", fen, start, end);
+
+    index = skipSpaces(fen, index, end);
+    if (index < end && fen.charAt(index) != ';') {
+      final char c = fen.charAt(index++);
+      if (c == 'w') stack[0].sideToMove = WHITE;
+      else if (c == 'b') stack[0].sideToMove = BLACK;
+      else throw badFen("side to move", fen, start, end);
+      if (index < end && !isSpace(fen.charAt(index))) throw badFen("side to move", fen, start, end);
     }
-    if (tokens.length > 2) {
-      try {
-        stack[0].castling = Castling.parse(tokens[2]);
-      } catch (final IllegalArgumentException e) {
-        throw new IllegalArgumentException("Bad FEN (castling) - " + fen, e);
+
+    index = skipSpaces(fen, index, end);
+    if (index < end && fen.charAt(index) != ';') {
+      int castling = ____;
+      for (; index < end && !isSpace(fen.charAt(index)); index++) {
+        switch (fen.charAt(index)) {
+          case 'K' -> castling |= K___;
+          case 'Q' -> castling |= _Q__;
+          case 'k' -> castling |= __k_;
+          case 'q' -> castling |= ___q;
+          case '-' -> {}
+          default -> throw badFen("castling", fen, start, end);
+        }
       }
+      stack[0].castling = castling;
     }
-    if (tokens.length > 3) {
-      try {
-        stack[0].epSquare = Square.parse(tokens[3]);
-      } catch (final IllegalArgumentException e) {
-        throw new IllegalArgumentException("Bad FEN (ep square) - " + fen, e);
+
+    index = skipSpaces(fen, index, end);
+    if (index < end && fen.charAt(index) != ';') {
+      if (fen.charAt(index) == '-') {
+        index++;
+      } else if (index + 1 < end
+          && fen.charAt(index) >= 'a'
+          && fen.charAt(index) <= 'h'
+          && fen.charAt(index + 1) >= '1'
+          && fen.charAt(index + 1) <= '8') {
+        final int friend = stack[0].sideToMove;
+        final int epSquare = at(fen.charAt(index) - 'a', fen.charAt(index + 1) - '1');
+        final int pushed = epSquare + forward(enemy(friend));
+        if (fen.charAt(index + 1) == (friend == WHITE ? '6' : '3')
+            && (Bitboard.ofSquare(pushed) & pawns(enemy(friend))) != 0L
+            && (EP_TEST[pushed] & pawns(friend)) != 0L) {
+          stack[0].epSquare = epSquare;
+        }
+        index += 2;
       }
+      if (index < end && !isSpace(fen.charAt(index))) throw badFen("ep square", fen, start, end);
     }
-    if (tokens.length > 4) {
-      try {
-        stack[0].reversibleMoves = Integer.parseInt(tokens[4]);
-      } catch (final NumberFormatException e) {
-        throw new IllegalArgumentException("Bad FEN (reversible moves) - " + fen, e);
+
+    index = skipSpaces(fen, index, end);
+    if (index < end && isDigit(fen.charAt(index))) {
+      int reversibleMoves = 0;
+      for (; index < end && isDigit(fen.charAt(index)); index++) {
+        reversibleMoves = reversibleMoves * 10 + fen.charAt(index) - '0';
+      }
+      stack[0].reversibleMoves = reversibleMoves;
+
+      final int next = skipSpaces(fen, index, end);
+      if (next < end && isDigit(fen.charAt(next))) {
+        int fullMoves = 0;
+        for (index = next; index < end && isDigit(fen.charAt(index)); index++) {
+          fullMoves = fullMoves * 10 + fen.charAt(index) - '0';
+        }
+        startPly = 2 * max(0, fullMoves - 1);
       }
     }
+    if (stack[0].sideToMove == BLACK) startPly++;
 
+    stack[0].key ^=
+        Zobrist.sideToMove(stack[0].sideToMove)
+            ^ Zobrist.castling(stack[0].castling)
+            ^ Zobrist.epSquare(stack[0].epSquare);
     stack[0].checkers = computeCheckers();
     stack[0].pinned = computePinned();
+    stack[0].threats = 0L;
+    return index;
+  }
+
+  public String toFen() {
+    return toFen(new StringBuilder(90)).toString();
+  }
+
+  public StringBuilder toFen(final StringBuilder fen) {
+    for (int rank = EIGHT; rank >= ONE; rank--) {
+      int empty = 0;
+      for (int file = A; file <= H; file++) {
+        final int square = at(file, rank);
+        if (pieces[square] == NO_PIECE) {
+          empty++;
+          continue;
+        }
+        if (empty > 0) fen.append((char) ('0' + empty));
+        empty = 0;
+
+        final char c = PIECE_CHARS[pieces[square]];
+        fen.append(contains(sideBitboards[WHITE], square) ? Character.toUpperCase(c) : c);
+      }
+      if (empty > 0) fen.append((char) ('0' + empty));
+      if (rank > ONE) fen.append('/');
+    }
+
+    fen.append(' ').append(sideToMove() == WHITE ? 'w' : 'b').append(' ');
+
+    final int castling = castling();
+    if (castling == ____) fen.append('-');
+    if ((castling & K___) != 0) fen.append('K');
+    if ((castling & _Q__) != 0) fen.append('Q');
+    if ((castling & __k_) != 0) fen.append('k');
+    if ((castling & ___q) != 0) fen.append('q');
+    fen.append(' ');
+
+    final int epSquare = epSquare();
+    if (epSquare == NO_SQUARE) fen.append('-');
+    else fen.append((char) ('a' + epSquare % 8)).append((char) ('1' + epSquare / 8));
+
+    return fen.append(' ').append(reversibleMoves()).append(' ').append((startPly + ply) / 2 + 1);
   }
 
   public long allPieces() {
@@ -128,6 +252,10 @@ public final class Board {
     return sideBitboards[side];
   }
 
+  public long pieces(final int side, final int piece) {
+    return sideBitboards[side] & pieceBitboards[piece];
+  }
+
   public long pawns(final int side) {
     return sideBitboards[side] & pieceBitboards[PAWN];
   }
@@ -168,6 +296,44 @@ public final class Board {
     return stack[ply].epSquare;
   }
 
+  public long key() {
+    return stack[ply].key;
+  }
+
+  public long pawnKey() {
+    return stack[ply].pawnKey;
+  }
+
+  public long materialKey() {
+    return stack[ply].materialKey;
+  }
+
+  public int middlegame() {
+    return stack[ply].middlegame;
+  }
+
+  public int endgame() {
+    return stack[ply].endgame;
+  }
+
+  public int phase() {
+    return stack[ply].phase;
+  }
+
+  public int reversibleMoves() {
+    return stack[ply].reversibleMoves;
+  }
+
+  public boolean isRepetition() {
+    final long key = stack[ply].key;
+    final int last = max(0, ply - stack[ply].reversibleMoves);
+
+    for (int i = ply - 4; i >= last; i -= 2) {
+      if (stack[i].key == key) return true;
+    }
+    return false;
+  }
+
   public boolean inCheck() {
     return checkers() != 0L;
   }
@@ -180,6 +346,12 @@ public final class Board {
     return stack[ply].pinned;
   }
 
+  public long threats() {
+    final StackItem item = stack[ply];
+    if (item.threats == 0L) item.threats = computeThreats();
+    return item.threats;
+  }
+
   public boolean isAttacked(final int square, final int enemy) {
     final int friend = enemy(enemy);
     final long blockers = allPieces() ^ kings(friend);
@@ -191,6 +363,15 @@ public final class Board {
         || (Attacks.orthogonal(square, blockers) & rooksQueens(enemy)) != 0L;
   }
 
+  public long attackers(final int square, final long occupied) {
+    return (Attacks.pawn(square, BLACK) & pawns(WHITE))
+        | (Attacks.pawn(square, WHITE) & pawns(BLACK))
+        | (Attacks.knight(square) & pieceBitboards[KNIGHT])
+        | (Attacks.king(square) & pieceBitboards[KING])
+        | (Attacks.diagonal(square, occupied) & (pieceBitboards[BISHOP] | pieceBitboards[QUEEN]))
+        | (Attacks.orthogonal(square, occupied) & (pieceBitboards[ROOK] | pieceBitboards[QUEEN]));
+  }
+
   public void make(final int move) {
     final int friend = sideToMove();
     final int enemy = enemy(friend);
@@ -207,6 +388,19 @@ public final class Board {
     stack[ply].epSquare = NO_SQUARE;
     stack[ply].reversibleMoves = stack[ply - 1].reversibleMoves + 1;
     stack[ply].capture = capture;
+    stack[ply].key =
+        stack[ply - 1].key
+            ^ Zobrist.sideToMove(BLACK)
+            ^ Zobrist.castling(stack[ply - 1].castling)
+            ^ Zobrist.epSquare(stack[ply - 1].epSquare);
+    stack[ply].pawnKey = stack[ply - 1].pawnKey;
+    stack[ply].materialKey = stack[ply - 1].materialKey;
+    stack[ply].middlegame = stack[ply - 1].middlegame;
+    stack[ply].endgame = stack[ply - 1].endgame;
+    stack[ply].phase = stack[ply - 1].phase;
+    if (network != null) {
+      System.arraycopy(accumulators[ply - 1], 0, accumulators[ply], 0, accumulators[ply].length);
+    }
 
     if (capture != NO_PIECE) {
       stack[ply].reversibleMoves = 0;
@@ -221,7 +415,7 @@ public final class Board {
       if (promotion != NO_PIECE) {
         clear(friend, PAWN, target);
         set(friend, promotion, target);
-      } else if (target == stack[ply - 1].epSquare) {
+      } else if (target == stack[ply - 1].epSquare && fileDistance(source, target) != 0) {
         clear(enemy, PAWN, target - forward(friend));
       } else if (rankDistance(source, target) == 2 && (EP_TEST[target] & pawns(enemy)) != 0L) {
         stack[ply].epSquare = target - forward(friend);
@@ -234,8 +428,10 @@ public final class Board {
       }
     }
 
+    stack[ply].key ^= Zobrist.castling(stack[ply].castling) ^ Zobrist.epSquare(stack[ply].epSquare);
     stack[ply].checkers = computeCheckers();
     stack[ply].pinned = computePinned();
+    stack[ply].threats = 0L;
   }
 
   public void undo(final int move) {
@@ -258,7 +454,7 @@ public final class Board {
       set(friend, PAWN, source);
     }
 
-    if (piece == PAWN && target == stack[ply - 1].epSquare) {
+    if (piece == PAWN && target == stack[ply - 1].epSquare && fileDistance(source, target) != 0) {
       set(enemy, PAWN, target - forward(friend));
     } else if (piece == KING && fileDistance(source, target) == 2) {
       if (source < target) {
@@ -269,6 +465,31 @@ public final class Board {
     }
 
     ply--;
+    if (network != null && ply < staleBelow) {
+      network.refresh(this, accumulators[ply]);
+      staleBelow = ply;
+    }
+  }
+
+  public void compact() {
+    final int keep = min(ply, min(stack[ply].reversibleMoves, MAX_HISTORY));
+    final int offset = ply - keep;
+    if (offset == 0) return;
+
+    for (int i = 0; i <= keep; i++) {
+      final StackItem item = stack[i];
+      stack[i] = stack[i + offset];
+      stack[i + offset] = item;
+
+      if (network != null) {
+        final short[] accumulator = accumulators[i];
+        accumulators[i] = accumulators[i + offset];
+        accumulators[i + offset] = accumulator;
+      }
+    }
+    ply = keep;
+    startPly += offset;
+    staleBelow = max(0, staleBelow - offset);
   }
 
   private void reset() {
@@ -276,35 +497,78 @@ public final class Board {
     Arrays.fill(pieceBitboards, 0L);
     Arrays.fill(pieces, NO_PIECE);
     ply = 0;
+    startPly = 0;
     stack[0].sideToMove = WHITE;
     stack[0].castling = ____;
     stack[0].epSquare = NO_SQUARE;
     stack[0].reversibleMoves = 0;
+    stack[0].key = 0L;
+    stack[0].pawnKey = 0L;
+    stack[0].materialKey = 0L;
+    stack[0].middlegame = 0;
+    stack[0].endgame = 0;
+    stack[0].phase = 0;
+    if (network != null) {
+      network.reset(accumulators[0]);
+      staleBelow = 0;
+    }
   }
 
   private void set(final int side, final int piece, final int square) {
     final long bitboard = Bitboard.ofSquare(square);
+    final StackItem current = stack[ply];
 
+    current.materialKey ^= Zobrist.material(side, piece, count(side, piece));
     sideBitboards[side] ^= bitboard;
     pieceBitboards[piece] ^= bitboard;
     pieces[square] = piece;
+
+    current.key ^= Zobrist.piece(side, piece, square);
+    if (piece == PAWN) current.pawnKey ^= Zobrist.piece(side, PAWN, square);
+    current.middlegame += Evaluation.middlegame(side, piece, square);
+    current.endgame += Evaluation.endgame(side, piece, square);
+    current.phase += Evaluation.phase(piece);
+    if (network != null) network.add(accumulators[ply], side, piece, square);
   }
 
   private void clear(final int side, final int piece, final int square) {
     final long bitboard = Bitboard.ofSquare(square);
+    final StackItem current = stack[ply];
 
     sideBitboards[side] ^= bitboard;
     pieceBitboards[piece] ^= bitboard;
     pieces[square] = NO_PIECE;
+    current.materialKey ^= Zobrist.material(side, piece, count(side, piece));
+
+    current.key ^= Zobrist.piece(side, piece, square);
+    if (piece == PAWN) current.pawnKey ^= Zobrist.piece(side, PAWN, square);
+    current.middlegame -= Evaluation.middlegame(side, piece, square);
+    current.endgame -= Evaluation.endgame(side, piece, square);
+    current.phase -= Evaluation.phase(piece);
+    if (network != null) network.remove(accumulators[ply], side, piece, square);
   }
 
   private void move(final int side, final int piece, final int source, final int target) {
     final long bitboard = Bitboard.ofSquare(source) ^ Bitboard.ofSquare(target);
+    final StackItem current = stack[ply];
+    final long key = Zobrist.piece(side, piece, source) ^ Zobrist.piece(side, piece, target);
 
     sideBitboards[side] ^= bitboard;
     pieceBitboards[piece] ^= bitboard;
     pieces[source] = NO_PIECE;
     pieces[target] = piece;
+
+    current.key ^= key;
+    if (piece == PAWN) current.pawnKey ^= key;
+    current.middlegame +=
+        Evaluation.middlegame(side, piece, target) - Evaluation.middlegame(side, piece, source);
+    current.endgame +=
+        Evaluation.endgame(side, piece, target) - Evaluation.endgame(side, piece, source);
+    if (network != null) network.move(accumulators[ply], side, piece, source, target);
+  }
+
+  private int count(final int side, final int piece) {
+    return Long.bitCount(sideBitboards[side] & pieceBitboards[piece]);
   }
 
   private long computeCheckers() {
@@ -340,6 +604,58 @@ public final class Board {
     return pinned;
   }
 
+  private long computeThreats() {
+    final int enemy = enemy(sideToMove());
+    final long blockers = allPieces() ^ kings(sideToMove());
+    final long pawnsForward = shift(pawns(enemy), forward(enemy));
+    long threats =
+        shift(pawnsForward, EAST) | shift(pawnsForward, WEST) | Attacks.king(king(enemy));
+
+    for (long knights = knights(enemy); knights != 0L; knights = pop(knights)) {
+      threats |= Attacks.knight(peek(knights));
+    }
+    for (long bishopsQueens = bishopsQueens(enemy);
+        bishopsQueens != 0L;
+        bishopsQueens = pop(bishopsQueens)) {
+      threats |= Attacks.diagonal(peek(bishopsQueens), blockers);
+    }
+    for (long rooksQueens = rooksQueens(enemy); rooksQueens != 0L; rooksQueens = pop(rooksQueens)) {
+      threats |= Attacks.orthogonal(peek(rooksQueens), blockers);
+    }
+
+    return threats;
+  }
+
+  private static int pieceOf(final char c) {
+    return switch (Character.toLowerCase(c)) {
+      case 'p' -> PAWN;
+      case 'n' -> KNIGHT;
+      case 'b' -> BISHOP;
+      case 'r' -> ROOK;
+      case 'q' -> QUEEN;
+      case 'k' -> KING;
+      default -> NO_PIECE;
+    };
+  }
+
+  private static boolean isSpace(final char c) {
+    return c == ' ' || c == '\t' || c == '\r';
+  }
+
+  private static boolean isDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int skipSpaces(final CharSequence s, int index, final int end) {
+    while (index < end && isSpace(s.charAt(index))) index++;
+    return index;
+  }
+
+  private static IllegalArgumentException badFen(
+      final String field, final CharSequence fen, final int start, final int end) {
+    return new IllegalArgumentException("Bad FEN (" + field + ") - " + fen.subSequence(start, end));
+  }
+
   @Override
   public String toString() {
     try (final Formatter f = new Formatter()) {
@@ -376,7 +692,31 @@ public final class Board {
     private int reversibleMoves;
 
     private int capture;
+    private long key;
+    private long pawnKey;
+    private long materialKey;
+    private int middlegame;
+    private int endgame;
+    private int phase;
     private long checkers;
     private long pinned;
+    private long threats;
+
+    private void copy(final StackItem item) {
+      sideToMove = item.sideToMove;
+      castling = item.castling;
+      epSquare = item.epSquare;
+      reversibleMoves = item.reversibleMoves;
+      capture = item.capture;
+      key = item.key;
+      pawnKey = item.pawnKey;
+      materialKey = item.materialKey;
+      middlegame = item.middlegame;
+      endgame = item.endgame;
+      phase = item.phase;
+      checkers = item.checkers;
+      pinned = item.pinned;
+      threats = item.threats;
+    }
   }
 }
@@ -0,0 +1,141 @@
+package com.jrw.chess.caffeine.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static java.lang.Math.*;
+
+public final class Book implements Closeable {
+  private static final int ENTRY_SIZE = 16;
+  private static final int WINDOW_SHIFT = 30;
+  private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] windows;
+  private final long entryCount;
+  private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+  private final int[] bookMoves = new int[MoveGenerator.MAX_MOVES];
+  private final int[] bookWeights = new int[MoveGenerator.MAX_MOVES];
+  private final SplittableRandom random;
+
+  public Book(final Path path) throws IOException {
+    this(path, new SplittableRandom());
+  }
+
+  public Book(final Path path, final SplittableRandom random) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.random = random;
+
+    final long size = channel.size();
+    if (size % ENTRY_SIZE != 0) {
+      channel.close();
+      throw new IllegalArgumentException("Bad book size - " + size);
+    }
+
+    this.entryCount = size / ENTRY_SIZE;
+    this.windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_SHIFT)];
+    for (int i = 0; i < windows.length; i++) {
+      final long position = (long) i << WINDOW_SHIFT;
+      windows[i] =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY, position, min(size - position, WINDOW_MASK + 1));
+    }
+  }
+
+  public long entryCount() {
+    return entryCount;
+  }
+
+  public int probe(final Board board) {
+    final int count = moves(board, bookMoves, bookWeights);
+    if (count == 0) return NO_MOVE;
+
+    int total = 0;
+    for (int i = 0; i < count; i++) total += bookWeights[i];
+    if (total == 0) return bookMoves[0];
+
+    int pick = random.nextInt(total);
+    for (int i = 0; i < count; i++) {
+      if ((pick -= bookWeights[i]) < 0) return bookMoves[i];
+    }
+    return bookMoves[count - 1];
+  }
+
+  public int moves(final Board board, final int[] moves, final int[] weights) {
+    final long key = Polyglot.key(board);
+    int legalMoveCount = -1;
+    int count = 0;
+
+    for (long i = lowerBound(key); i < entryCount && key(i) == key; i++) {
+      final int move = move(board, (int) read(i, 8, 2));
+      if (legalMoveCount < 0) legalMoveCount = legalMoves(board);
+      if (!contains(legalMoves, legalMoveCount, move) || contains(moves, count, move)) continue;
+
+      moves[count] = move;
+      weights[count++] = (int) read(i, 10, 2);
+    }
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long lowerBound(final long key) {
+    long low = 0L;
+    long high = entryCount;
+
+    while (low < high) {
+      final long middle = (low + high) >>> 1;
+      if (Long.compareUnsigned(key(middle), key) < 0) low = middle + 1;
+      else high = middle;
+    }
+    return low;
+  }
+
+  private long key(final long entry) {
+    return read(entry, 0, 8);
+  }
+
+  private long read(final long entry, final int offset, final int length) {
+    final long position = entry * ENTRY_SIZE + offset;
+    final MappedByteBuffer window = windows[(int) (position >>> WINDOW_SHIFT)];
+    final int index = (int) (position & WINDOW_MASK);
+
+    return (length == 8) ? window.getLong(index) : window.getShort(index) & 0xFFFF;
+  }
+
+  private static int move(final Board board, final int entry) {
+    final int target = ((entry >>> 3) & 7) * 8 + (entry & 7);
+    final int source = ((entry >>> 9) & 7) * 8 + ((entry >>> 6) & 7);
+    final int promotion = (entry >>> 12) & 7;
+
+    if (board.piece(source) == KING && source % 8 == 4 && target / 8 == source / 8) {
+      if (target % 8 == 7) return create(source, source + 2);
+      if (target % 8 == 0) return create(source, source - 2);
+    }
+    return create(source, target, (promotion == 0) ? NO_PIECE : promotion);
+  }
+
+  private int legalMoves(final Board board) {
+    if (board.inCheck()) return MoveGenerator.evasionMoves(board, legalMoves, true);
+
+    final int count = MoveGenerator.tacticalMoves(board, legalMoves, true);
+    return MoveGenerator.quietMoves(board, legalMoves, count, true);
+  }
+
+  private static boolean contains(final int[] moves, final int count, final int move) {
+    for (int i = 0; i < count; i++) {
+      if (moves[i] == move) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,59 @@
+package com.jrw.chess.caffeine.search;
+
+import java.util.Arrays;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+import static java.lang.Math.*;
+
+public final class History {
+  public static final int NO_CONTINUATION = 2 * 6 * 64 * 6 * 64;
+
+  private static final int MAX_HISTORY = 16384;
+  private static final int MAX_BONUS = 1536;
+
+  private final int[] butterfly = new int[2 * 64 * 64];
+  private final int[] counterMoves = new int[2 * 6 * 64];
+  private final int[] continuations = new int[NO_CONTINUATION + 6 * 64];
+
+  public void clear() {
+    Arrays.fill(butterfly, 0);
+    Arrays.fill(counterMoves, NO_MOVE);
+    Arrays.fill(continuations, 0);
+  }
+
+  public int score(final int side, final int move, final int piece, final int continuation) {
+    return butterfly[butterflyIndex(side, move)]
+        + continuations[continuation + piece * 64 + target(move)];
+  }
+
+  public void update(
+      final int side, final int move, final int piece, final int continuation, final int bonus) {
+    final int index = butterflyIndex(side, move);
+    butterfly[index] += bonus - butterfly[index] * abs(bonus) / MAX_HISTORY;
+
+    if (continuation != NO_CONTINUATION) {
+      final int entry = continuation + piece * 64 + target(move);
+      continuations[entry] += bonus - continuations[entry] * abs(bonus) / MAX_HISTORY;
+    }
+  }
+
+  public int counterMove(final int side, final int piece, final int target) {
+    return counterMoves[(side * 6 + piece) * 64 + target];
+  }
+
+  public void setCounterMove(final int side, final int piece, final int target, final int move) {
+    counterMoves[(side * 6 + piece) * 64 + target] = move;
+  }
+
+  public static int continuation(final int side, final int piece, final int target) {
+    return ((side * 6 + piece) * 64 + target) * 6 * 64;
+  }
+
+  public static int bonus(final int depth) {
+    return min(16 * depth * depth, MAX_BONUS);
+  }
+
+  private static int butterflyIndex(final int side, final int move) {
+    return (side * 64 + source(move)) * 64 + target(move);
+  }
+}
@@ -0,0 +1,16 @@
+package com.jrw.chess.caffeine.search;
+
+import lombok.Builder;
+import lombok.Value;
+
+import static com.jrw.chess.caffeine.search.Search.*;
+
+@Value
+@Builder(toBuilder = true)
+public class Limits {
+  public static final Limits INFINITE = Limits.builder().build();
+
+  @Builder.Default int depth = MAX_PLY - 1;
+  @Builder.Default long nodes = Long.MAX_VALUE;
+  @Builder.Default long moveTime = Long.MAX_VALUE;
+}
@@ -38,6 +38,17 @@ public class Move {
     return (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
   }
 
+  public int parse(final String s) {
+    if (s.length() < 4 || s.length() > 5) {
+      throw new IllegalArgumentException("Cannot parse move - " + s);
+    }
+
+    return create(
+        Square.parse(s.substring(0, 2)),
+        Square.parse(s.substring(2, 4)),
+        Piece.parse(s.substring(4)));
+  }
+
   public String string(final int move) {
     return String.format(
         MOVE_FORMAT,
@@ -27,13 +27,23 @@ public class MoveGenerator {
   private final long[] OO_TEST = {
     Bitboard.ofSquare(F1) | Bitboard.ofSquare(G1), Bitboard.ofSquare(F8) | Bitboard.ofSquare(G8)
   };
+  private final long[] OO_PATH = {
+    Bitboard.ofSquare(F1) | Bitboard.ofSquare(G1), Bitboard.ofSquare(F8) | Bitboard.ofSquare(G8)
+  };
   private final int[] OOO_RIGHTS = {_Q__, ___q};
   private final long[] OOO_TEST = {
     Bitboard.ofSquare(D1) | Bitboard.ofSquare(C1) | Bitboard.ofSquare(B1),
     Bitboard.ofSquare(D8) | Bitboard.ofSquare(C8) | Bitboard.ofSquare(B8)
   };
+  private final long[] OOO_PATH = {
+    Bitboard.ofSquare(D1) | Bitboard.ofSquare(C1), Bitboard.ofSquare(D8) | Bitboard.ofSquare(C8)
+  };
 
   public int tacticalMoves(final Board board, final int[] moves) {
+    return tacticalMoves(board, moves, false);
+  }
+
+  public int tacticalMoves(final Board board, final int[] moves, final boolean legal) {
     final long emptySquares = ~board.allPieces();
     final long enemyPieces = board.allPieces(enemy(board.sideToMove()));
     int moveCount = 0;
@@ -44,13 +54,19 @@ public class MoveGenerator {
             moves,
             moveCount,
             emptySquares & PROMOTION_TARGETS,
-            enemyPieces | Bitboard.ofSquare(board.epSquare()),
-            QUEEN_PROMOTIONS);
-    moveCount = pieceMoves(board, moves, moveCount, enemyPieces, true);
+            enemyPieces | (legal ? 0L : Bitboard.ofSquare(board.epSquare())),
+            QUEEN_PROMOTIONS,
+            legal);
+    moveCount = pieceMoves(board, moves, moveCount, enemyPieces, true, legal);
+    if (legal) moveCount = enPassantMoves(board, moves, moveCount);
     return moveCount;
   }
 
-  public int quietMoves(final Board board, final int[] moves, int moveCount) {
+  public int quietMoves(final Board board, final int[] moves, final int moveCount) {
+    return quietMoves(board, moves, moveCount, false);
+  }
+
+  public int quietMoves(final Board board, final int[] moves, int moveCount, final boolean legal) {
     final long emptySquares = ~board.allPieces();
     final long enemyPieces = board.allPieces(enemy(board.sideToMove()));
 
@@ -61,16 +77,76 @@ public class MoveGenerator {
             moveCount,
             emptySquares,
             enemyPieces & PROMOTION_TARGETS,
-            UNDER_PROMOTIONS);
-    moveCount = pieceMoves(board, moves, moveCount, emptySquares, true);
-    moveCount = castlingMoves(board, moves, moveCount);
+            UNDER_PROMOTIONS,
+            legal);
+    moveCount = pieceMoves(board, moves, moveCount, emptySquares, true, legal);
+    moveCount = castlingMoves(board, moves, moveCount, legal);
+    return moveCount;
+  }
+
+  public int quietChecks(final Board board, final int[] moves, final int moveCount) {
+    return quietChecks(board, moves, moveCount, false);
+  }
+
+  public int quietChecks(final Board board, final int[] moves, int moveCount, final boolean legal) {
+    final int friend = board.sideToMove();
+    final int enemy = enemy(friend);
+    final int king = board.king(enemy);
+    final long blockers = board.allPieces();
+    final long emptySquares = ~blockers;
+    final long knightChecks = Attacks.knight(king) & emptySquares;
+    final long diagonalChecks = Attacks.diagonal(king, blockers) & emptySquares;
+    final long orthogonalChecks = Attacks.orthogonal(king, blockers) & emptySquares;
+    final long pinned = legal ? board.pinned() : 0L;
+    final int friendKing = board.king(friend);
+
+    moveCount =
+        pawnMoves(
+            board,
+            moves,
+            moveCount,
+            Attacks.pawn(king, enemy) & emptySquares & ~PROMOTION_TARGETS,
+            0L,
+            QUEEN_PROMOTIONS,
+            legal);
+
+    for (long knights = board.knights(friend) & ~pinned; knights != 0L; knights = pop(knights)) {
+      final int source = peek(knights);
+      moveCount = generateMoves(moves, moveCount, source, Attacks.knight(source) & knightChecks);
+    }
+
+    for (long bishopsQueens = board.bishopsQueens(friend);
+        bishopsQueens != 0L;
+        bishopsQueens = pop(bishopsQueens)) {
+      final int source = peek(bishopsQueens);
+      final long checks =
+          (board.piece(source) == QUEEN) ? diagonalChecks | orthogonalChecks : diagonalChecks;
+      final long targets = Attacks.diagonal(source, blockers) & checks;
+      moveCount = generateMoves(moves, moveCount, source, pin(targets, pinned, friendKing, source));
+    }
+
+    for (long rooksQueens = board.rooksQueens(friend);
+        rooksQueens != 0L;
+        rooksQueens = pop(rooksQueens)) {
+      final int source = peek(rooksQueens);
+      final long checks =
+          (board.piece(source) == QUEEN) ? diagonalChecks | orthogonalChecks : orthogonalChecks;
+      final long targets = Attacks.orthogonal(source, blockers) & checks;
+      moveCount = generateMoves(moves, moveCount, source, pin(targets, pinned, friendKing, source));
+    }
+
     return moveCount;
   }
 
   public int evasionMoves(final Board board, final int[] moves) {
+    return evasionMoves(board, moves, false);
+  }
+
+  public int evasionMoves(final Board board, final int[] moves, final boolean legal) {
     final int friend = board.sideToMove();
     final int king = board.king(friend);
     final long checkers = board.checkers();
+    final long safe = legal ? ~board.threats() : ~0L;
     int moveCount = 0;
 
     if (pop(checkers) == 0L) {
@@ -82,16 +158,143 @@ public class MoveGenerator {
               moves,
               moveCount,
               between,
-              checkers | Bitboard.ofSquare(board.epSquare()),
-              ALL_PROMOTIONS);
-      moveCount = pieceMoves(board, moves, moveCount, between | checkers, false);
+              checkers | (legal ? 0L : Bitboard.ofSquare(board.epSquare())),
+              ALL_PROMOTIONS,
+              legal);
+      moveCount = pieceMoves(board, moves, moveCount, between | checkers, false, legal);
+      if (legal) moveCount = enPassantMoves(board, moves, moveCount);
     }
 
     moveCount =
-        generateMoves(moves, moveCount, king, Attacks.king(king) & ~board.allPieces(friend));
+        generateMoves(moves, moveCount, king, Attacks.king(king) & ~board.allPieces(friend) & safe);
     return moveCount;
   }
 
+  public int countLegalMoves(final Board board) {
+    final int friend = board.sideToMove();
+    final int enemy = enemy(friend);
+    final int king = board.king(friend);
+    final long blockers = board.allPieces();
+    final long friends = board.allPieces(friend);
+    final long checkers = board.checkers();
+    final long pinned = board.pinned();
+    int count = Long.bitCount(Attacks.king(king) & ~friends & ~board.threats());
+
+    if (pop(checkers) != 0L) return count;
+
+    final long targets =
+        (checkers == 0L) ? ~friends : Bitboard.between(king, peek(checkers)) | checkers;
+
+    for (long knights = board.knights(friend) & ~pinned; knights != 0L; knights = pop(knights)) {
+      count += Long.bitCount(Attacks.knight(peek(knights)) & targets);
+    }
+
+    for (long bishopsQueens = board.bishopsQueens(friend);
+        bishopsQueens != 0L;
+        bishopsQueens = pop(bishopsQueens)) {
+      final int source = peek(bishopsQueens);
+      final long moves = Attacks.diagonal(source, blockers) & targets;
+      count += Long.bitCount(contains(pinned, source) ? moves & ray(king, source) : moves);
+    }
+
+    for (long rooksQueens = board.rooksQueens(friend);
+        rooksQueens != 0L;
+        rooksQueens = pop(rooksQueens)) {
+      final int source = peek(rooksQueens);
+      final long moves = Attacks.orthogonal(source, blockers) & targets;
+      count += Long.bitCount(contains(pinned, source) ? moves & ray(king, source) : moves);
+    }
+
+    count += countPawnMoves(board, board.pawns(friend) & ~pinned, targets);
+    for (long pawns = board.pawns(friend) & pinned; pawns != 0L; pawns = pop(pawns)) {
+      final int source = peek(pawns);
+      count += countPawnMoves(board, Bitboard.ofSquare(source), targets & ray(king, source));
+    }
+
+    final int epSquare = board.epSquare();
+    if (epSquare != NO_SQUARE
+        && (checkers == 0L
+            || contains(targets, epSquare)
+            || contains(checkers, epSquare - Side.forward(friend)))) {
+      for (long pawns = Attacks.pawn(epSquare, enemy) & board.pawns(friend);
+          pawns != 0L;
+          pawns = pop(pawns)) {
+        if (isLegal(board, create(peek(pawns), epSquare))) count++;
+      }
+    }
+
+    if (checkers == 0L) {
+      final int castling = board.castling();
+      final long threats = board.threats();
+
+      if ((OO_RIGHTS[friend] & castling) != 0
+          && (OO_TEST[friend] & blockers) == 0L
+          && (OO_PATH[friend] & threats) == 0L) {
+        count++;
+      }
+      if ((OOO_RIGHTS[friend] & castling) != 0
+          && (OOO_TEST[friend] & blockers) == 0L
+          && (OOO_PATH[friend] & threats) == 0L) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  public boolean isTactical(final Board board, final int move) {
+    final int promotion = promotion(move);
+    final int target = target(move);
+
+    if (promotion != NO_PIECE) return promotion == QUEEN;
+    return board.piece(target) != NO_PIECE
+        || (board.piece(source(move)) == PAWN && target == board.epSquare());
+  }
+
+  public boolean isPseudoLegal(final Board board, final int move) {
+    final int friend = board.sideToMove();
+    final int source = source(move);
+    final int target = target(move);
+    final int piece = board.piece(source);
+    final int promotion = promotion(move);
+    final long friends = board.allPieces(friend);
+    final long blockers = board.allPieces();
+
+    if (move == NO_MOVE || !contains(friends, source) || contains(friends, target)) return false;
+
+    if (piece == PAWN) {
+      if (contains(PROMOTION_TARGETS, target)
+          ? promotion < KNIGHT || promotion > QUEEN
+          : promotion != NO_PIECE) {
+        return false;
+      }
+
+      final int forward = Side.forward(friend);
+      if (contains(Attacks.pawn(source, friend), target)) {
+        return contains(board.allPieces(enemy(friend)), target) || target == board.epSquare();
+      }
+      if (target == source + forward) {
+        return !contains(blockers, target);
+      }
+      return target == source + forward + forward
+          && contains(DOUBLE_PUSH_TARGETS[friend], target)
+          && !contains(blockers, source + forward)
+          && !contains(blockers, target);
+    }
+
+    if (promotion != NO_PIECE) return false;
+
+    return switch (piece) {
+      case KNIGHT -> contains(Attacks.knight(source), target);
+      case BISHOP -> contains(Attacks.diagonal(source, blockers), target);
+      case ROOK -> contains(Attacks.orthogonal(source, blockers), target);
+      case QUEEN -> contains(
+          Attacks.diagonal(source, blockers) | Attacks.orthogonal(source, blockers), target);
+      case KING -> contains(Attacks.king(source), target) || isCastling(board, source, target);
+      default -> false;
+    };
+  }
+
   public boolean isLegal(final Board board, final int move) {
     final int friend = board.sideToMove();
     final int enemy = enemy(friend);
@@ -122,10 +325,44 @@ public class MoveGenerator {
       int moveCount,
       final long pushTargets,
       final long captureTargets,
+      final int[] promotions,
+      final boolean legal) {
+    final int friend = board.sideToMove();
+    final long pawns = board.pawns(friend);
+    final long pinned = legal ? board.pinned() & pawns : 0L;
+    final int king = board.king(friend);
+
+    moveCount =
+        pawnMoves(
+            board, pawns & ~pinned, moves, moveCount, pushTargets, captureTargets, promotions);
+    for (long pinnedPawns = pinned; pinnedPawns != 0L; pinnedPawns = pop(pinnedPawns)) {
+      final int source = peek(pinnedPawns);
+      final long ray = ray(king, source);
+
+      moveCount =
+          pawnMoves(
+              board,
+              Bitboard.ofSquare(source),
+              moves,
+              moveCount,
+              pushTargets & ray,
+              captureTargets & ray,
+              promotions);
+    }
+    return moveCount;
+  }
+
+  private int pawnMoves(
+      final Board board,
+      final long pawns,
+      final int[] moves,
+      int moveCount,
+      final long pushTargets,
+      final long captureTargets,
       final int[] promotions) {
     final int friend = board.sideToMove();
     final int forward = Side.forward(friend);
-    final long pawnsForward = shift(board.pawns(friend), forward);
+    final long pawnsForward = shift(pawns, forward);
     final long emptySquares = ~board.allPieces();
 
     moveCount =
@@ -154,6 +391,27 @@ public class MoveGenerator {
     return moveCount;
   }
 
+  private int countPawnMoves(final Board board, final long pawns, final long targets) {
+    final int friend = board.sideToMove();
+    final int forward = Side.forward(friend);
+    final long emptySquares = ~board.allPieces();
+    final long enemyPieces = board.allPieces(enemy(friend));
+    final long pawnsForward = shift(pawns, forward);
+    final long singlePushes = pawnsForward & emptySquares;
+    final long doublePushes =
+        shift(singlePushes, forward) & emptySquares & DOUBLE_PUSH_TARGETS[friend];
+
+    return countPawnTargets(singlePushes & targets)
+        + countPawnTargets(doublePushes & targets)
+        + countPawnTargets(shift(pawnsForward, EAST) & enemyPieces & targets)
+        + countPawnTargets(shift(pawnsForward, WEST) & enemyPieces & targets);
+  }
+
+  private int countPawnTargets(final long targets) {
+    return Long.bitCount(targets & ~PROMOTION_TARGETS)
+        + ALL_PROMOTIONS.length * Long.bitCount(targets & PROMOTION_TARGETS);
+  }
+
   private int generatePawnMoves(
       final int[] moves,
       int moveCount,
@@ -187,11 +445,14 @@ public class MoveGenerator {
       final int[] moves,
       int moveCount,
       final long targets,
-      final boolean kingMoves) {
+      final boolean kingMoves,
+      final boolean legal) {
     final int friend = board.sideToMove();
     final long blockers = board.allPieces();
+    final long pinned = legal ? board.pinned() : 0L;
+    final int king = board.king(friend);
 
-    for (long knights = board.knights(friend); knights != 0L; knights = pop(knights)) {
+    for (long knights = board.knights(friend) & ~pinned; knights != 0L; knights = pop(knights)) {
       final int source = peek(knights);
       moveCount = generateMoves(moves, moveCount, source, Attacks.knight(source) & targets);
     }
@@ -200,26 +461,51 @@ public class MoveGenerator {
         bishopsQueens != 0L;
         bishopsQueens = pop(bishopsQueens)) {
       final int source = peek(bishopsQueens);
-      moveCount =
-          generateMoves(moves, moveCount, source, Attacks.diagonal(source, blockers) & targets);
+      final long attacks = Attacks.diagonal(source, blockers) & targets;
+      moveCount = generateMoves(moves, moveCount, source, pin(attacks, pinned, king, source));
     }
 
     for (long rooksQueens = board.rooksQueens(friend);
         rooksQueens != 0L;
         rooksQueens = pop(rooksQueens)) {
       final int source = peek(rooksQueens);
-      moveCount =
-          generateMoves(moves, moveCount, source, Attacks.orthogonal(source, blockers) & targets);
+      final long attacks = Attacks.orthogonal(source, blockers) & targets;
+      moveCount = generateMoves(moves, moveCount, source, pin(attacks, pinned, king, source));
     }
 
     if (kingMoves) {
-      final int source = board.king(friend);
-      moveCount = generateMoves(moves, moveCount, source, Attacks.king(source) & targets);
+      final long safe = legal ? ~board.threats() : ~0L;
+      moveCount = generateMoves(moves, moveCount, king, Attacks.king(king) & targets & safe);
     }
 
     return moveCount;
   }
 
+  private long pin(final long targets, final long pinned, final int king, final int source) {
+    return contains(pinned, source) ? targets & ray(king, source) : targets;
+  }
+
+  private int enPassantMoves(final Board board, final int[] moves, int moveCount) {
+    final int epSquare = board.epSquare();
+    if (epSquare == NO_SQUARE) return moveCount;
+
+    final int friend = board.sideToMove();
+    final long checkers = board.checkers();
+    if (checkers != 0L
+        && !contains(Bitboard.between(board.king(friend), peek(checkers)), epSquare)
+        && !contains(checkers, epSquare - Side.forward(friend))) {
+      return moveCount;
+    }
+
+    for (long pawns = Attacks.pawn(epSquare, enemy(friend)) & board.pawns(friend);
+        pawns != 0L;
+        pawns = pop(pawns)) {
+      final int move = create(peek(pawns), epSquare);
+      if (isLegal(board, move)) moves[moveCount++] = move;
+    }
+    return moveCount;
+  }
+
   private int generateMoves(final int[] moves, int moveCount, final int source, long targets) {
     for (; targets != 0L; targets = pop(targets)) {
       moves[moveCount++] = create(source, peek(targets));
@@ -227,7 +513,28 @@ public class MoveGenerator {
     return moveCount;
   }
 
-  private int castlingMoves(final Board board, final int[] moves, int moveCount) {
+  private boolean isCastling(final Board board, final int source, final int target) {
+    final int friend = board.sideToMove();
+    final int enemy = enemy(friend);
+    final int castling = board.castling();
+    final long allPieces = board.allPieces();
+
+    if (board.inCheck()) return false;
+    if (target == source + 2) {
+      return (OO_RIGHTS[friend] & castling) != 0
+          && (OO_TEST[friend] & allPieces) == 0L
+          && !board.isAttacked(source + 1, enemy);
+    }
+    if (target == source - 2) {
+      return (OOO_RIGHTS[friend] & castling) != 0
+          && (OOO_TEST[friend] & allPieces) == 0L
+          && !board.isAttacked(source - 1, enemy);
+    }
+    return false;
+  }
+
+  private int castlingMoves(
+      final Board board, final int[] moves, int moveCount, final boolean legal) {
     final int friend = board.sideToMove();
     final int enemy = enemy(friend);
     final int castling = board.castling();
@@ -236,13 +543,17 @@ public class MoveGenerator {
 
     if ((OO_RIGHTS[friend] & castling) != 0
         && (OO_TEST[friend] & allPieces) == 0L
-        && !board.isAttacked(king + 1, enemy)) {
+        && (legal
+            ? (OO_PATH[friend] & board.threats()) == 0L
+            : !board.isAttacked(king + 1, enemy))) {
       moves[moveCount++] = create(king, king + 2);
     }
 
     if ((OOO_RIGHTS[friend] & castling) != 0
         && (OOO_TEST[friend] & allPieces) == 0L
-        && !board.isAttacked(king - 1, enemy)) {
+        && (legal
+            ? (OOO_PATH[friend] & board.threats()) == 0L
+            : !board.isAttacked(king - 1, enemy))) {
       moves[moveCount++] = create(king, king - 2);
     }
 
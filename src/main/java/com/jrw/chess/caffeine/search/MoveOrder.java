@@ -1,29 +1,271 @@
 package com.jrw.chess.caffeine.search;
 
-import lombok.RequiredArgsConstructor;
-
+import static com.jrw.chess.caffeine.core.Piece.*;
 import static com.jrw.chess.caffeine.search.Move.*;
 import static com.jrw.chess.caffeine.search.MoveGenerator.*;
 
-@RequiredArgsConstructor
 public final class MoveOrder {
+  public static final String LEGAL_PROPERTY = "caffeine.legal";
+  public static final boolean DEFAULT_LEGAL =
+      Boolean.parseBoolean(System.getProperty(LEGAL_PROPERTY, "true"));
+
+  private static final int HASH_MOVE = 0;
+  private static final int GENERATE_CAPTURES = 1;
+  private static final int GOOD_CAPTURES = 2;
+  private static final int FIRST_KILLER = 3;
+  private static final int SECOND_KILLER = 4;
+  private static final int COUNTER_MOVE = 5;
+  private static final int GENERATE_QUIETS = 6;
+  private static final int QUIETS = 7;
+  private static final int BAD_CAPTURES = 8;
+  private static final int GENERATE_EVASIONS = 9;
+  private static final int EVASIONS = 10;
+  private static final int GENERATE_QUIESCENCE_CAPTURES = 11;
+  private static final int QUIESCENCE_CAPTURES = 12;
+  private static final int GENERATE_QUIESCENCE_CHECKS = 13;
+  private static final int QUIESCENCE_CHECKS = 14;
+  private static final int DONE = 15;
+
+  private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+
   private final int[] moves = new int[MAX_MOVES];
+  private final int[] scores = new int[MAX_MOVES];
   private final Board board;
+  private final History history;
+  private final boolean legal;
   private int moveCount;
   private int current;
+  private int badCaptureCount;
+  private int stage;
+  private int hashMove;
+  private int firstKiller;
+  private int secondKiller;
+  private int counterMove;
+  private int continuation;
+  private boolean checks;
+  private boolean verify;
+
+  public MoveOrder(final Board board) {
+    this(board, null);
+  }
+
+  public MoveOrder(final Board board, final History history) {
+    this(board, history, DEFAULT_LEGAL);
+  }
+
+  public MoveOrder(final Board board, final History history, final boolean legal) {
+    this.board = board;
+    this.history = history;
+    this.legal = legal;
+  }
 
   public void setup() {
-    moveCount =
-        board.inCheck()
-            ? evasionMoves(board, moves)
-            : quietMoves(board, moves, tacticalMoves(board, moves));
-    current = 0;
+    setup(NO_MOVE, NO_MOVE, NO_MOVE, NO_MOVE, History.NO_CONTINUATION);
+  }
+
+  public void setup(
+      final int hashMove,
+      final int firstKiller,
+      final int secondKiller,
+      final int counterMove,
+      final int continuation) {
+    this.hashMove = hashMove;
+    this.firstKiller = firstKiller;
+    this.secondKiller = secondKiller;
+    this.counterMove = counterMove;
+    this.continuation = continuation;
+    this.stage = board.inCheck() ? GENERATE_EVASIONS : HASH_MOVE;
+  }
+
+  public void setupQuiescence(final boolean checks) {
+    this.hashMove = NO_MOVE;
+    this.checks = checks;
+    this.stage = board.inCheck() ? GENERATE_EVASIONS : GENERATE_QUIESCENCE_CAPTURES;
   }
 
   public int next() {
-    if (current >= moveCount) return NO_MOVE;
+    int move;
+    while ((move = pick()) != NO_MOVE) {
+      if (!verify || isLegal(board, move)) return move;
+    }
+    return NO_MOVE;
+  }
+
+  private int pick() {
+    verify = !legal;
+    switch (stage) {
+      case HASH_MOVE:
+        stage = GENERATE_CAPTURES;
+        if (hashMove != NO_MOVE && isPseudoLegal(board, hashMove)) return unverified(hashMove);
+
+      case GENERATE_CAPTURES:
+        moveCount = tacticalMoves(board, moves, legal);
+        current = 0;
+        badCaptureCount = 0;
+        scoreCaptures();
+        stage = GOOD_CAPTURES;
+
+      case GOOD_CAPTURES:
+        while (current < moveCount) {
+          select();
+
+          final int move = moves[current++];
+          if (move == hashMove) continue;
+          if (!isGoodCapture(move)) {
+            moves[badCaptureCount++] = move;
+            continue;
+          }
+          return move;
+        }
+        stage = FIRST_KILLER;
+
+      case FIRST_KILLER:
+        stage = SECOND_KILLER;
+        if (isRefutation(firstKiller)) return unverified(firstKiller);
+
+      case SECOND_KILLER:
+        stage = COUNTER_MOVE;
+        if (secondKiller != firstKiller && isRefutation(secondKiller)) {
+          return unverified(secondKiller);
+        }
+
+      case COUNTER_MOVE:
+        stage = GENERATE_QUIETS;
+        if (counterMove != firstKiller
+            && counterMove != secondKiller
+            && isRefutation(counterMove)) {
+          return unverified(counterMove);
+        }
+
+      case GENERATE_QUIETS:
+        current = moveCount;
+        moveCount = quietMoves(board, moves, moveCount, legal);
+        scoreQuiets();
+        stage = QUIETS;
+
+      case QUIETS:
+        while (current < moveCount) {
+          if (history != null) select();
+
+          final int move = moves[current++];
+          if (move != hashMove
+              && move != firstKiller
+              && move != secondKiller
+              && move != counterMove) {
+            return move;
+          }
+        }
+        current = 0;
+        stage = BAD_CAPTURES;
+
+      case BAD_CAPTURES:
+        if (current < badCaptureCount) return moves[current++];
+        stage = DONE;
+        return NO_MOVE;
+
+      case GENERATE_EVASIONS:
+        moveCount = evasionMoves(board, moves, legal);
+        current = 0;
+        scoreCaptures();
+        stage = EVASIONS;
+
+      case EVASIONS:
+        if (current < moveCount) {
+          select();
+          return moves[current++];
+        }
+        stage = DONE;
+        return NO_MOVE;
+
+      case GENERATE_QUIESCENCE_CAPTURES:
+        moveCount = tacticalMoves(board, moves, legal);
+        current = 0;
+        scoreCaptures();
+        stage = QUIESCENCE_CAPTURES;
+
+      case QUIESCENCE_CAPTURES:
+        if (current < moveCount) {
+          select();
+          return moves[current++];
+        }
+        if (!checks) {
+          stage = DONE;
+          return NO_MOVE;
+        }
+        stage = GENERATE_QUIESCENCE_CHECKS;
+
+      case GENERATE_QUIESCENCE_CHECKS:
+        current = moveCount;
+        moveCount = quietChecks(board, moves, moveCount, legal);
+        stage = QUIESCENCE_CHECKS;
+
+      case QUIESCENCE_CHECKS:
+        if (current < moveCount) return moves[current++];
+        stage = DONE;
+
+      default:
+        return NO_MOVE;
+    }
+  }
+
+  private int unverified(final int move) {
+    verify = true;
+    return move;
+  }
+
+  private boolean isRefutation(final int move) {
+    return move != NO_MOVE
+        && move != hashMove
+        && !isTactical(board, move)
+        && isPseudoLegal(board, move);
+  }
+
+  private boolean isGoodCapture(final int move) {
+    return StaticExchange.isAtLeast(board, move, 0);
+  }
+
+  private void scoreCaptures() {
+    for (int i = current; i < moveCount; i++) {
+      scores[i] = (moves[i] == hashMove) ? HASH_MOVE_SCORE : mvvLva(moves[i]);
+    }
+  }
+
+  private void scoreQuiets() {
+    if (history == null) return;
+
+    final int side = board.sideToMove();
+    for (int i = current; i < moveCount; i++) {
+      final int move = moves[i];
+      scores[i] = history.score(side, move, board.piece(source(move)), continuation);
+    }
+  }
+
+  private void select() {
+    int best = current;
+    for (int i = current + 1; i < moveCount; i++) {
+      if (scores[i] > scores[best]) best = i;
+    }
+
+    final int move = moves[best];
+    final int score = scores[best];
+    moves[best] = moves[current];
+    scores[best] = scores[current];
+    moves[current] = move;
+    scores[current] = score;
+  }
+
+  private int mvvLva(final int move) {
+    final int source = source(move);
+    final int target = target(move);
+    final int attacker = board.piece(source);
+    int victim = board.piece(target);
 
-    final int candidate = moves[current++];
-    return isLegal(board, candidate) ? candidate : next();
+    if (victim == NO_PIECE) {
+      victim = (attacker == PAWN && target == board.epSquare()) ? PAWN : -1;
+    }
+    if (promotion(move) != NO_PIECE) {
+      victim += QUEEN;
+    }
+    return victim * 8 + KING - attacker;
   }
 }
@@ -0,0 +1,153 @@
+package com.jrw.chess.caffeine.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.jrw.chess.caffeine.core.Bitboard.*;
+import static com.jrw.chess.caffeine.core.Side.*;
+import static java.lang.Math.*;
+
+public final class Network {
+  public static final int INPUTS = 2 * 6 * 64;
+
+  private static final int QA = 255;
+  private static final int QB = 64;
+  private static final int SCALE = 400;
+
+  private final int hidden;
+  private final short[] featureWeights;
+  private final short[] featureBiases;
+  private final short[] outputWeights;
+  private final short outputBias;
+
+  public Network(
+      final short[] featureWeights,
+      final short[] featureBiases,
+      final short[] outputWeights,
+      final short outputBias) {
+    if (featureWeights.length != INPUTS * featureBiases.length
+        || outputWeights.length != 2 * featureBiases.length) {
+      throw new IllegalArgumentException("Bad network shape - " + featureBiases.length);
+    }
+
+    this.hidden = featureBiases.length;
+    this.featureWeights = featureWeights;
+    this.featureBiases = featureBiases;
+    this.outputWeights = outputWeights;
+    this.outputBias = outputBias;
+  }
+
+  public static Network load(final Path path) {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final long shorts = size / Short.BYTES;
+      final long hidden = (shorts - 1) / (INPUTS + 3);
+
+      if (size % Short.BYTES != 0 || hidden < 1 || hidden * (INPUTS + 3) + 1 != shorts) {
+        throw new IllegalArgumentException("Bad network file - " + path);
+      }
+
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+      final ShortBuffer weights = buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+      final short[] featureWeights = new short[(int) (INPUTS * hidden)];
+      final short[] featureBiases = new short[(int) hidden];
+      final short[] outputWeights = new short[(int) (2 * hidden)];
+
+      weights.get(featureWeights).get(featureBiases).get(outputWeights);
+      return new Network(featureWeights, featureBiases, outputWeights, weights.get());
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Cannot load network - " + path, e);
+    }
+  }
+
+  public int hidden() {
+    return hidden;
+  }
+
+  public void reset(final short[] accumulator) {
+    System.arraycopy(featureBiases, 0, accumulator, 0, hidden);
+    System.arraycopy(featureBiases, 0, accumulator, hidden, hidden);
+  }
+
+  public void refresh(final Board board, final short[] accumulator) {
+    reset(accumulator);
+
+    for (int side = WHITE; side <= BLACK; side++) {
+      for (long pieces = board.allPieces(side); pieces != 0L; pieces = pop(pieces)) {
+        final int square = peek(pieces);
+        add(accumulator, side, board.piece(square), square);
+      }
+    }
+  }
+
+  public void add(final short[] accumulator, final int side, final int piece, final int square) {
+    final int white = feature(WHITE, side, piece, square) * hidden;
+    final int black = feature(BLACK, side, piece, square) * hidden;
+
+    for (int i = 0; i < hidden; i++) {
+      accumulator[i] += featureWeights[white + i];
+    }
+    for (int i = 0; i < hidden; i++) {
+      accumulator[hidden + i] += featureWeights[black + i];
+    }
+  }
+
+  public void remove(final short[] accumulator, final int side, final int piece, final int square) {
+    final int white = feature(WHITE, side, piece, square) * hidden;
+    final int black = feature(BLACK, side, piece, square) * hidden;
+
+    for (int i = 0; i < hidden; i++) {
+      accumulator[i] -= featureWeights[white + i];
+    }
+    for (int i = 0; i < hidden; i++) {
+      accumulator[hidden + i] -= featureWeights[black + i];
+    }
+  }
+
+  public void move(
+      final short[] accumulator,
+      final int side,
+      final int piece,
+      final int source,
+      final int target) {
+    final int whiteSource = feature(WHITE, side, piece, source) * hidden;
+    final int whiteTarget = feature(WHITE, side, piece, target) * hidden;
+    final int blackSource = feature(BLACK, side, piece, source) * hidden;
+    final int blackTarget = feature(BLACK, side, piece, target) * hidden;
+
+    for (int i = 0; i < hidden; i++) {
+      accumulator[i] += featureWeights[whiteTarget + i] - featureWeights[whiteSource + i];
+    }
+    for (int i = 0; i < hidden; i++) {
+      accumulator[hidden + i] += featureWeights[blackTarget + i] - featureWeights[blackSource + i];
+    }
+  }
+
+  public int evaluate(final short[] accumulator, final int side) {
+    final int friend = (side == WHITE) ? 0 : hidden;
+    final int enemy = hidden - friend;
+    int sum = 0;
+
+    for (int i = 0; i < hidden; i++) {
+      sum += min(max(accumulator[friend + i], 0), QA) * outputWeights[i];
+    }
+    for (int i = 0; i < hidden; i++) {
+      sum += min(max(accumulator[enemy + i], 0), QA) * outputWeights[hidden + i];
+    }
+
+    return (sum + outputBias) * SCALE / (QA * QB);
+  }
+
+  private static int feature(
+      final int perspective, final int side, final int piece, final int square) {
+    return (perspective == WHITE)
+        ? (side * 6 + piece) * 64 + square
+        : ((side ^ 1) * 6 + piece) * 64 + (square ^ 56);
+  }
+}
@@ -0,0 +1,93 @@
+package com.jrw.chess.caffeine.search;
+
+import lombok.experimental.UtilityClass;
+
+import static com.jrw.chess.caffeine.core.Bitboard.*;
+import static com.jrw.chess.caffeine.core.Direction.*;
+import static com.jrw.chess.caffeine.core.Side.*;
+
+@UtilityClass
+public class PawnEvaluation {
+  private final int[] PASSED_MIDDLEGAME = {0, 5, 5, 10, 20, 35, 60, 0};
+  private final int[] PASSED_ENDGAME = {0, 10, 15, 25, 45, 75, 120, 0};
+  private final int ISOLATED_MIDDLEGAME = -10;
+  private final int ISOLATED_ENDGAME = -15;
+  private final int DOUBLED_MIDDLEGAME = -10;
+  private final int DOUBLED_ENDGAME = -20;
+  private final int BACKWARD_MIDDLEGAME = -8;
+  private final int BACKWARD_ENDGAME = -12;
+  private final int NEAR_SHIELD = 12;
+  private final int FAR_SHIELD = 6;
+
+  public int score(final int middlegame, final int endgame) {
+    return (endgame << 16) + middlegame;
+  }
+
+  public int middlegame(final int score) {
+    return (short) score;
+  }
+
+  public int endgame(final int score) {
+    return (short) ((score + 0x8000) >> 16);
+  }
+
+  public int evaluate(final Board board) {
+    return evaluate(board.pawns(WHITE), board.pawns(BLACK), WHITE)
+        - evaluate(board.pawns(BLACK), board.pawns(WHITE), BLACK);
+  }
+
+  public int shield(final Board board, final int side) {
+    final long king = ofSquare(board.king(side));
+    final long near = shift(king | shift(king, EAST) | shift(king, WEST), forward(side));
+    final long far = shift(near, forward(side));
+    final long pawns = board.pawns(side);
+
+    return NEAR_SHIELD * Long.bitCount(near & pawns) + FAR_SHIELD * Long.bitCount(far & pawns);
+  }
+
+  private int evaluate(final long friends, final long enemies, final int side) {
+    final long enemyFronts = frontSpan(enemies, enemy(side));
+    final long passers =
+        friends & ~(enemyFronts | shift(enemyFronts, EAST) | shift(enemyFronts, WEST));
+    final long doubled = friends & frontSpan(friends, enemy(side));
+    final long files = fileFill(friends);
+    final long isolated = friends & ~(shift(files, EAST) | shift(files, WEST));
+    final long stops = shift(friends, forward(side));
+    final long supported = frontFill(attacks(friends, side), side);
+    final long backward =
+        shift(stops & attacks(enemies, enemy(side)) & ~supported, -forward(side)) & ~isolated;
+
+    int middlegame =
+        ISOLATED_MIDDLEGAME * Long.bitCount(isolated)
+            + DOUBLED_MIDDLEGAME * Long.bitCount(doubled)
+            + BACKWARD_MIDDLEGAME * Long.bitCount(backward);
+    int endgame =
+        ISOLATED_ENDGAME * Long.bitCount(isolated)
+            + DOUBLED_ENDGAME * Long.bitCount(doubled)
+            + BACKWARD_ENDGAME * Long.bitCount(backward);
+
+    for (long bitboard = passers; bitboard != 0L; bitboard = pop(bitboard)) {
+      final int rank = peek(bitboard) >>> 3;
+      final int relativeRank = (side == WHITE) ? rank : 7 - rank;
+
+      middlegame += PASSED_MIDDLEGAME[relativeRank];
+      endgame += PASSED_ENDGAME[relativeRank];
+    }
+
+    return score(middlegame, endgame);
+  }
+
+  private long attacks(final long pawns, final int side) {
+    final long pushes = shift(pawns, forward(side));
+
+    return shift(pushes, EAST) | shift(pushes, WEST);
+  }
+
+  private long frontFill(final long bitboard, final int side) {
+    return (side == WHITE) ? northFill(bitboard) : southFill(bitboard);
+  }
+
+  private long frontSpan(final long bitboard, final int side) {
+    return shift(frontFill(bitboard, side), forward(side));
+  }
+}
@@ -0,0 +1,62 @@
+package com.jrw.chess.caffeine.search;
+
+import java.util.Arrays;
+
+public final class PawnTable {
+  public static final int DEFAULT_SIZE = 1 << 14;
+
+  private final long[] keys;
+  private final int[] scores;
+  private final int mask;
+  private long probes;
+  private long hits;
+
+  public PawnTable() {
+    this(DEFAULT_SIZE);
+  }
+
+  public PawnTable(final int size) {
+    if (size < 1 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Bad pawn table size - " + size);
+    }
+
+    this.keys = new long[size];
+    this.scores = new int[size];
+    this.mask = size - 1;
+  }
+
+  public int probe(final Board board) {
+    final long key = board.pawnKey();
+    final int index = (int) key & mask;
+
+    probes++;
+    if (keys[index] == key) {
+      hits++;
+      return scores[index];
+    }
+
+    final int score = PawnEvaluation.evaluate(board);
+    keys[index] = key;
+    scores[index] = score;
+    return score;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0L);
+    Arrays.fill(scores, 0);
+    resetStatistics();
+  }
+
+  public void resetStatistics() {
+    probes = 0L;
+    hits = 0L;
+  }
+
+  public long probes() {
+    return probes;
+  }
+
+  public long hits() {
+    return hits;
+  }
+}
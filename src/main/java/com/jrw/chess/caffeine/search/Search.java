@@ -1,71 +1,250 @@
 package com.jrw.chess.caffeine.search;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.core.Side.*;
 import static com.jrw.chess.caffeine.search.Move.*;
+import static com.jrw.chess.caffeine.search.TranspositionTable.*;
 import static java.lang.Math.*;
 
 public final class Search {
   public static final int MAX_PLY = 127;
   public static final int MATE = 32767;
+  public static final int MAX_THREADS = 256;
+  public static final int MAX_MULTI_PV = MoveGenerator.MAX_MOVES;
+  public static final int TB_WIN = MATE - 2 * MAX_PLY;
+  public static final int DEFAULT_PROBE_LIMIT = SyzygyTable.MAX_PIECES;
+
+  private static final int POLL_INTERVAL = 1024;
+  private static final int DELTA_MARGIN = 200;
+  private static final int ASPIRATION_DEPTH = 4;
+  private static final int ASPIRATION_WINDOW = 25;
+  private static final int[] SKIP_SIZE = {
+    1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4
+  };
+  private static final int[] SKIP_PHASE = {
+    0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7
+  };
 
   private final Board board;
   private final PrintStream out;
-  private final StackItem[] stack;
+  private TranspositionTable table;
+  private SyzygyTables tablebases;
+  private Worker[] workers;
+  private ExecutorService helpers;
+  private boolean quiescenceChecks = true;
+  private int multiPv = 1;
+  private int probeLimit = DEFAULT_PROBE_LIMIT;
+  private volatile boolean stopped;
+  private volatile int depthLimit;
+  private volatile long nodeLimit;
+  private volatile long deadline;
+  private long startTime;
 
   public Search(final Board board, final PrintStream out) {
+    this(board, out, new TranspositionTable());
+  }
+
+  public Search(final Board board, final PrintStream out, final TranspositionTable table) {
     this.board = board;
     this.out = out;
-    this.stack = Stream.generate(StackItem::new).limit(MAX_PLY).toArray(StackItem[]::new);
+    this.table = table;
+    setThreads(1);
   }
 
-  public int bestMove() {
-    search(0, 6, -MATE, MATE);
-    return NO_MOVE;
+  public void setThreads(final int threads) {
+    if (threads < 1 || threads > MAX_THREADS) {
+      throw new IllegalArgumentException("Bad thread count - " + threads);
+    }
+    if (helpers != null) {
+      helpers.shutdownNow();
+    }
+
+    workers = new Worker[threads];
+    workers[0] = new Worker(0, board);
+    for (int i = 1; i < threads; i++) {
+      workers[i] = new Worker(i, new Board(board));
+    }
+    setTablebases(tablebases);
+    helpers =
+        (threads > 1)
+            ? Executors.newFixedThreadPool(
+                threads - 1,
+                runnable -> {
+                  final Thread thread = new Thread(runnable, "caffeine-helper");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
   }
 
-  private int search(final int ply, final int depth, int alpha, int beta) {
-    if (depth <= 0) return 0;
+  public void setHashSize(final int megabytes) {
+    table = new TranspositionTable(megabytes);
+  }
 
-    int bestScore = ply - MATE;
-    int legalMoveCount = 0;
-    int move;
+  public void setMultiPv(final int multiPv) {
+    if (multiPv < 1 || multiPv > MAX_MULTI_PV) {
+      throw new IllegalArgumentException("Bad MultiPV - " + multiPv);
+    }
+    this.multiPv = multiPv;
+  }
 
-    alpha = max(ply - MATE, alpha);
-    beta = min(MATE - ply + 1, beta);
-    if (alpha >= beta) {
-      return alpha;
+  public void setQuiescenceChecks(final boolean quiescenceChecks) {
+    this.quiescenceChecks = quiescenceChecks;
+  }
+
+  public void setTablebases(final SyzygyTables tablebases) {
+    this.tablebases = tablebases;
+    for (final Worker worker : workers) {
+      worker.syzygy = (tablebases == null) ? null : new Syzygy(tablebases);
     }
+  }
 
-    stack[ply].moves.setup();
-    while ((move = stack[ply].moves.next()) != NO_MOVE) {
-      legalMoveCount++;
-      board.make(move);
-      final int score = -search(ply + 1, depth - 1, -beta, -alpha);
-      board.undo(move);
+  public void setNetwork(final Network network) {
+    for (final Worker worker : workers) {
+      worker.board.setNetwork(network);
+    }
+  }
 
-      if (score >= beta) {
-        return beta;
-      } else if (score > alpha) {
-        bestScore = score;
-        alpha = score;
+  public void setProbeLimit(final int probeLimit) {
+    if (probeLimit < 0 || probeLimit > SyzygyTable.MAX_PIECES) {
+      throw new IllegalArgumentException("Bad probe limit - " + probeLimit);
+    }
+    this.probeLimit = probeLimit;
+  }
 
-        if (ply == 0) {
-          out.printf(
-              "info depth %d score %s time %d nodes %d pv %s%n",
-              depth, uciScore(score), 0L, 0L, Move.string(move));
-        }
-      } else if (score > bestScore) {
-        bestScore = score;
+  public int bestMove(final Limits limits) {
+    prepare(limits);
+    return bestMove();
+  }
+
+  public void prepare(final Limits limits) {
+    startTime = System.nanoTime();
+    setLimits(limits, startTime);
+    stopped = false;
+    table.newSearch();
+  }
+
+  public int bestMove() {
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int i = 1; i < workers.length; i++) {
+      final Worker helper = workers[i];
+
+      helper.board.setup(board);
+      futures.add(helpers.submit(helper::iterate));
+    }
+
+    int bestMove = workers[0].iterate();
+    stopped = true;
+
+    for (final Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (final ExecutionException e) {
+        throw new IllegalStateException("Helper search failed", e.getCause());
       }
     }
 
-    if (legalMoveCount == 0 && !board.inCheck()) {
-      bestScore = 0;
+    if (bestMove == NO_MOVE) {
+      final MoveOrder moves = new MoveOrder(board);
+      moves.setup();
+      bestMove = moves.next();
+      workers[0].ponderMove = NO_MOVE;
+    }
+    return bestMove;
+  }
+
+  public int ponderMove() {
+    return workers[0].ponderMove;
+  }
+
+  public int bestScore() {
+    return workers[0].bestScore;
+  }
+
+  public int completedDepth() {
+    return workers[0].completedDepth;
+  }
+
+  public void ponderHit(final Limits limits) {
+    setLimits(limits, System.nanoTime());
+    if (workers[0].completedDepth >= depthLimit) stopped = true;
+  }
+
+  public void clear() {
+    table.clear();
+    for (final Worker worker : workers) {
+      worker.clear();
     }
+  }
 
-    return bestScore;
+  public void stop() {
+    stopped = true;
+  }
+
+  public long nodes() {
+    long nodes = 0L;
+    for (final Worker worker : workers) {
+      nodes += worker.nodes;
+    }
+    return nodes;
+  }
+
+  public double pawnHitRate() {
+    long probes = 0L;
+    long hits = 0L;
+    for (final Worker worker : workers) {
+      probes += worker.pawnTable.probes();
+      hits += worker.pawnTable.hits();
+    }
+    return (probes == 0L) ? 0.0 : (double) hits / probes;
+  }
+
+  public long tablebaseHits() {
+    long hits = 0L;
+    for (final Worker worker : workers) {
+      hits += worker.tablebaseHits;
+    }
+    return hits;
+  }
+
+  public long quiescenceNodes() {
+    long nodes = 0L;
+    for (final Worker worker : workers) {
+      nodes += worker.quiescenceNodes;
+    }
+    return nodes;
+  }
+
+  private void setLimits(final Limits limits, final long from) {
+    depthLimit = min(limits.getDepth(), MAX_PLY - 1);
+    nodeLimit = limits.getNodes();
+    deadline =
+        (limits.getMoveTime() == Long.MAX_VALUE)
+            ? Long.MAX_VALUE
+            : from + TimeUnit.MILLISECONDS.toNanos(limits.getMoveTime());
+  }
+
+  private void checkLimits() {
+    if (nodes() >= nodeLimit || System.nanoTime() >= deadline) {
+      stopped = true;
+    }
+  }
+
+  private long elapsed() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
   }
 
   private String uciScore(final int score) {
@@ -75,7 +254,433 @@ public final class Search {
     return "cp " + score;
   }
 
-  private class StackItem {
-    private MoveOrder moves = new MoveOrder(board);
+  private final class Worker {
+    private final int id;
+    private final Board board;
+    private final History history = new History();
+    private final PawnTable pawnTable = new PawnTable();
+    private final StackItem[] stack;
+    private final int[] excluded = new int[MoveGenerator.MAX_MOVES];
+    private final int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+    private Syzygy syzygy;
+    private long nodes;
+    private long quiescenceNodes;
+    private long tablebaseHits;
+    private int rootMove;
+    private int ponderMove;
+    private int bestScore;
+    private int excludedCount;
+    private int filteredCount;
+    private int pieceLimit;
+    private volatile int completedDepth;
+
+    private Worker(final int id, final Board board) {
+      this.id = id;
+      this.board = board;
+      this.stack =
+          Stream.generate(() -> new StackItem(board, history))
+              .limit(MAX_PLY)
+              .toArray(StackItem[]::new);
+    }
+
+    private void clear() {
+      history.clear();
+      pawnTable.clear();
+      for (final StackItem item : stack) {
+        Arrays.fill(item.killers, NO_MOVE);
+      }
+    }
+
+    private int iterate() {
+      nodes = 0L;
+      quiescenceNodes = 0L;
+      tablebaseHits = 0L;
+      rootMove = NO_MOVE;
+      ponderMove = NO_MOVE;
+      bestScore = 0;
+      completedDepth = 0;
+      pawnTable.resetStatistics();
+      filterRootMoves();
+
+      final RootLine[] lines =
+          Stream.generate(RootLine::new)
+              .limit((id == 0) ? min(multiPv, max(1, rootMoveCount())) : 1)
+              .toArray(RootLine[]::new);
+      int bestMove = NO_MOVE;
+      for (int depth = 1; depth <= depthLimit; depth++) {
+        if (skip(depth)) continue;
+
+        excludedCount = 0;
+        for (final RootLine line : lines) {
+          line.score = aspirate(depth, line.score);
+          if (stopped) break;
+
+          line.pvLength = stack[0].pvLength;
+          System.arraycopy(stack[0].pv, 0, line.pv, 0, line.pvLength);
+          excluded[excludedCount++] = rootMove;
+        }
+        excludedCount = 0;
+        if (stopped) break;
+
+        Arrays.sort(lines, (a, b) -> Integer.compare(b.score, a.score));
+        bestMove = (lines[0].pvLength > 0) ? lines[0].pv[0] : rootMove;
+        ponderMove = (lines[0].pvLength > 1) ? lines[0].pv[1] : NO_MOVE;
+        bestScore = lines[0].score;
+        completedDepth = depth;
+        if (id == 0) {
+          final long time = elapsed();
+          final long totalNodes = nodes();
+          for (int i = 0; i < lines.length; i++) {
+            out.printf(
+                "info depth %d multipv %d score %s time %d nodes %d nps %d tbhits %d pv %s%n",
+                depth,
+                i + 1,
+                uciScore(lines[i].score),
+                time,
+                totalNodes,
+                totalNodes * 1000L / max(1L, time),
+                tablebaseHits(),
+                lines[i].principalVariation());
+          }
+
+          if (lines.length == 1 && MATE - abs(lines[0].score) <= depth) break;
+        }
+      }
+
+      return (bestMove == NO_MOVE) ? rootMove : bestMove;
+    }
+
+    private int rootMoveCount() {
+      final MoveOrder moves = stack[0].moves;
+      int count = 0;
+      int move;
+
+      moves.setup();
+      while ((move = moves.next()) != NO_MOVE) {
+        if (!isFiltered(move)) count++;
+      }
+      return count;
+    }
+
+    private void filterRootMoves() {
+      filteredCount = -1;
+      pieceLimit = (syzygy == null) ? 0 : probeLimit;
+      if (syzygy == null || !syzygy.canProbe(board, probeLimit)) return;
+
+      int count;
+      if (board.inCheck()) {
+        count = MoveGenerator.evasionMoves(board, rootMoves, true);
+      } else {
+        count = MoveGenerator.tacticalMoves(board, rootMoves, true);
+        count = MoveGenerator.quietMoves(board, rootMoves, count, true);
+      }
+
+      count = syzygy.filterRootMoves(board, rootMoves, count);
+      if (count > 0) {
+        filteredCount = count;
+        pieceLimit = 0;
+        tablebaseHits++;
+      }
+    }
+
+    private boolean isFiltered(final int move) {
+      for (int i = 0; i < filteredCount; i++) {
+        if (rootMoves[i] == move) return false;
+      }
+      return filteredCount >= 0;
+    }
+
+    private boolean isExcluded(final int move) {
+      for (int i = 0; i < excludedCount; i++) {
+        if (excluded[i] == move) return true;
+      }
+      return isFiltered(move);
+    }
+
+    private int aspirate(final int depth, final int previousScore) {
+      int delta = ASPIRATION_WINDOW;
+      int alpha = -MATE;
+      int beta = MATE;
+
+      if (depth >= ASPIRATION_DEPTH) {
+        alpha = max(previousScore - delta, -MATE);
+        beta = min(previousScore + delta, MATE);
+      }
+
+      while (true) {
+        final int score = search(0, depth, alpha, beta);
+
+        if (stopped) return score;
+        if (score <= alpha) {
+          beta = (alpha + beta) / 2;
+          alpha = max(score - delta, -MATE);
+        } else if (score >= beta) {
+          beta = min(score + delta, MATE);
+        } else {
+          return score;
+        }
+        delta += delta / 2;
+      }
+    }
+
+    private boolean skip(final int depth) {
+      if (id == 0) return false;
+
+      final int i = (id - 1) % SKIP_SIZE.length;
+      return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+    }
+
+    private int search(final int ply, final int depth, int alpha, int beta) {
+      if (depth <= 0) return quiesce(ply, 0, alpha, beta);
+
+      stack[ply].pvLength = 0;
+      countNode();
+      if (stopped) return 0;
+      if (ply > 0 && isDraw()) return 0;
+
+      int bestScore = ply - MATE;
+      int bestMove = NO_MOVE;
+      int legalMoveCount = 0;
+      int move;
+
+      final boolean pvNode = beta - alpha > 1;
+      alpha = max(ply - MATE, alpha);
+      beta = min(MATE - ply + 1, beta);
+      if (alpha >= beta) {
+        return alpha;
+      }
+
+      final long key = board.key();
+      final long entry = table.probe(key);
+      if (entry != 0L && !pvNode && TranspositionTable.depth(entry) >= depth) {
+        final int score = score(entry, ply);
+        final int bound = bound(entry);
+
+        if (bound == BOUND_EXACT
+            || (bound == BOUND_LOWER && score >= beta)
+            || (bound == BOUND_UPPER && score <= alpha)) {
+          return score;
+        }
+      }
+
+      if (ply > 0
+          && pieceLimit > 0
+          && board.reversibleMoves() == 0
+          && syzygy.canProbe(board, pieceLimit)) {
+        final int wdl = syzygy.probeWdl(board);
+
+        if (wdl != Syzygy.FAIL) {
+          final int score = (wdl > 1) ? TB_WIN - ply : (wdl < -1) ? ply - TB_WIN : wdl;
+          final int bound = (wdl > 1) ? BOUND_LOWER : (wdl < -1) ? BOUND_UPPER : BOUND_EXACT;
+
+          tablebaseHits++;
+          if (bound == BOUND_EXACT
+              || (bound == BOUND_LOWER && score >= beta)
+              || (bound == BOUND_UPPER && score <= alpha)) {
+            table.store(key, NO_MOVE, score, min(MAX_PLY - 1, depth + 6), bound, ply);
+            return score;
+          }
+        }
+      }
+
+      final int originalAlpha = alpha;
+
+      final StackItem item = stack[ply];
+      int counterMove = NO_MOVE;
+      int continuation = History.NO_CONTINUATION;
+
+      if (ply > 0) {
+        final int side = enemy(board.sideToMove());
+        final int target = target(stack[ply - 1].move);
+
+        counterMove = history.counterMove(side, stack[ply - 1].piece, target);
+        continuation = History.continuation(side, stack[ply - 1].piece, target);
+      }
+
+      item.quietCount = 0;
+      item.moves.setup(
+          TranspositionTable.move(entry),
+          item.killers[0],
+          item.killers[1],
+          counterMove,
+          continuation);
+      while ((move = item.moves.next()) != NO_MOVE) {
+        if (ply == 0 && isExcluded(move)) continue;
+
+        final boolean quiet = !MoveGenerator.isTactical(board, move);
+
+        item.move = move;
+        item.piece = board.piece(source(move));
+        legalMoveCount++;
+        board.make(move);
+        int score;
+        if (legalMoveCount == 1) {
+          score = -search(ply + 1, depth - 1, -beta, -alpha);
+        } else {
+          score = -search(ply + 1, depth - 1, -alpha - 1, -alpha);
+          if (score > alpha && score < beta) {
+            score = -search(ply + 1, depth - 1, -beta, -alpha);
+          }
+        }
+        board.undo(move);
+
+        if (stopped) return 0;
+        if (score >= beta) {
+          if (ply == 0) rootMove = move;
+          if (quiet) updateQuietHistory(ply, depth, move, continuation);
+          if (ply > 0 || excludedCount == 0) table.store(key, move, beta, depth, BOUND_LOWER, ply);
+          return beta;
+        } else if (score > alpha) {
+          bestScore = score;
+          bestMove = move;
+          alpha = score;
+          if (ply == 0) rootMove = move;
+          updatePrincipalVariation(ply, move);
+        } else if (score > bestScore) {
+          bestScore = score;
+        }
+
+        if (quiet) item.quiets[item.quietCount++] = move;
+      }
+
+      if (legalMoveCount == 0 && !board.inCheck()) {
+        bestScore = 0;
+      }
+
+      if (ply > 0 || excludedCount == 0) {
+        table.store(
+            key,
+            bestMove,
+            bestScore,
+            depth,
+            bestScore > originalAlpha ? BOUND_EXACT : BOUND_UPPER,
+            ply);
+      }
+      return bestScore;
+    }
+
+    private void updatePrincipalVariation(final int ply, final int move) {
+      final StackItem item = stack[ply];
+      final StackItem child = stack[ply + 1];
+
+      item.pv[0] = move;
+      System.arraycopy(child.pv, 0, item.pv, 1, child.pvLength);
+      item.pvLength = child.pvLength + 1;
+    }
+
+    private void updateQuietHistory(
+        final int ply, final int depth, final int move, final int continuation) {
+      final StackItem item = stack[ply];
+      final int side = board.sideToMove();
+      final int bonus = History.bonus(depth);
+
+      if (item.killers[0] != move) {
+        item.killers[1] = item.killers[0];
+        item.killers[0] = move;
+      }
+
+      history.update(side, move, board.piece(source(move)), continuation, bonus);
+      for (int i = 0; i < item.quietCount; i++) {
+        final int quiet = item.quiets[i];
+        history.update(side, quiet, board.piece(source(quiet)), continuation, -bonus);
+      }
+
+      if (ply > 0) {
+        final StackItem previous = stack[ply - 1];
+        history.setCounterMove(enemy(side), previous.piece, target(previous.move), move);
+      }
+    }
+
+    private int quiesce(final int ply, final int quiescencePly, int alpha, final int beta) {
+      stack[ply].pvLength = 0;
+      countNode();
+      quiescenceNodes++;
+      if (stopped) return 0;
+      if (isDraw()) return 0;
+
+      final boolean inCheck = board.inCheck();
+      if (ply >= MAX_PLY - 1) return inCheck ? 0 : Evaluation.evaluate(board, pawnTable);
+
+      int bestScore = ply - MATE;
+      int standPat = bestScore;
+      int move;
+
+      if (!inCheck) {
+        standPat = Evaluation.evaluate(board, pawnTable);
+        if (standPat >= beta) return standPat;
+
+        bestScore = standPat;
+        alpha = max(alpha, standPat);
+      }
+
+      stack[ply].moves.setupQuiescence(quiescenceChecks && quiescencePly == 0);
+      while ((move = stack[ply].moves.next()) != NO_MOVE) {
+        if (!inCheck
+            && promotion(move) == NO_PIECE
+            && standPat + Evaluation.value(captured(move)) + DELTA_MARGIN <= alpha) {
+          continue;
+        }
+
+        board.make(move);
+        final int score = -quiesce(ply + 1, quiescencePly + 1, -beta, -alpha);
+        board.undo(move);
+
+        if (stopped) return 0;
+        if (score > bestScore) {
+          bestScore = score;
+          if (score >= beta) return score;
+          if (score > alpha) alpha = score;
+        }
+      }
+
+      return bestScore;
+    }
+
+    private int captured(final int move) {
+      final int target = target(move);
+
+      return (target == board.epSquare() && board.piece(source(move)) == PAWN)
+          ? PAWN
+          : board.piece(target);
+    }
+
+    private void countNode() {
+      if (++nodes % POLL_INTERVAL == 0L && id == 0) checkLimits();
+    }
+
+    private boolean isDraw() {
+      return board.isRepetition() || (board.reversibleMoves() >= 100 && !board.inCheck());
+    }
+  }
+
+  private static class RootLine {
+    private final int[] pv = new int[MAX_PLY];
+    private int pvLength;
+    private int score;
+
+    private String principalVariation() {
+      final StringBuilder builder = new StringBuilder();
+
+      for (int i = 0; i < pvLength; i++) {
+        if (i > 0) builder.append(' ');
+        builder.append(Move.string(pv[i]));
+      }
+      return builder.toString();
+    }
+  }
+
+  private static class StackItem {
+    private final MoveOrder moves;
+    private final int[] killers = new int[2];
+    private final int[] quiets = new int[MoveGenerator.MAX_MOVES];
+    private final int[] pv = new int[MAX_PLY];
+    private int quietCount;
+    private int pvLength;
+    private int move;
+    private int piece;
+
+    private StackItem(final Board board, final History history) {
+      this.moves = new MoveOrder(board, history);
+    }
   }
 }
@@ -0,0 +1,68 @@
+package com.jrw.chess.caffeine.search;
+
+import com.jrw.chess.caffeine.core.Attacks;
+import com.jrw.chess.caffeine.core.Bitboard;
+import lombok.experimental.UtilityClass;
+
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.core.Side.*;
+import static com.jrw.chess.caffeine.search.Evaluation.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+
+@UtilityClass
+public class StaticExchange {
+  public boolean isAtLeast(final Board board, final int move, final int threshold) {
+    final int source = source(move);
+    final int target = target(move);
+
+    if (promotion(move) != NO_PIECE
+        || (board.piece(source) == PAWN && target == board.epSquare())) {
+      return threshold <= 0;
+    }
+
+    int swap = value(board.piece(target)) - threshold;
+    if (swap < 0) return false;
+
+    swap = value(board.piece(source)) - swap;
+    if (swap <= 0) return true;
+
+    long occupied = board.allPieces() ^ Bitboard.ofSquare(source) ^ Bitboard.ofSquare(target);
+    long attackers = board.attackers(target, occupied);
+    int side = board.sideToMove();
+    int result = 1;
+
+    while (true) {
+      side = enemy(side);
+      attackers &= occupied;
+
+      final long sideAttackers = attackers & board.allPieces(side);
+      if (sideAttackers == 0L) break;
+
+      result ^= 1;
+
+      int piece = PAWN;
+      while ((sideAttackers & board.pieces(side, piece)) == 0L) piece++;
+
+      if (piece == KING) {
+        return ((attackers & ~board.allPieces(side)) != 0L) == (result == 0);
+      }
+
+      swap = value(piece) - swap;
+      if (swap < result) break;
+
+      occupied ^= Long.lowestOneBit(sideAttackers & board.pieces(side, piece));
+      if (piece == PAWN || piece == BISHOP || piece == QUEEN) {
+        attackers |=
+            Attacks.diagonal(target, occupied)
+                & (board.bishopsQueens(WHITE) | board.bishopsQueens(BLACK));
+      }
+      if (piece == ROOK || piece == QUEEN) {
+        attackers |=
+            Attacks.orthogonal(target, occupied)
+                & (board.rooksQueens(WHITE) | board.rooksQueens(BLACK));
+      }
+    }
+
+    return result != 0;
+  }
+}
@@ -0,0 +1,223 @@
+package com.jrw.chess.caffeine.search;
+
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static java.lang.Math.*;
+
+public final class Syzygy {
+  public static final int LOSS = -2;
+  public static final int BLESSED_LOSS = -1;
+  public static final int DRAW = 0;
+  public static final int CURSED_WIN = 1;
+  public static final int WIN = 2;
+  public static final int FAIL = SyzygyTable.FAIL;
+
+  private static final int MAX_DTZ = 1 << 18;
+  private static final int MAX_LEVEL = 32;
+  private static final int OK = 0;
+  private static final int FAILED = 1;
+  private static final int ZEROING = 2;
+  private static final int CHANGE_SIDE = 3;
+
+  private final SyzygyTables tables;
+  private final int[] squares = new int[SyzygyTable.MAX_PIECES];
+  private final int[] pieces = new int[SyzygyTable.MAX_PIECES];
+  private final int[][] moves = new int[MAX_LEVEL][MoveGenerator.MAX_MOVES];
+  private final int[] ranks = new int[MoveGenerator.MAX_MOVES];
+  private int level;
+  private int state;
+
+  public Syzygy(final SyzygyTables tables) {
+    this.tables = tables;
+  }
+
+  public boolean canProbe(final Board board, final int limit) {
+    final int count = Long.bitCount(board.allPieces());
+    return board.castling() == 0 && count <= min(limit, tables.maxPieces());
+  }
+
+  public int probeWdl(final Board board) {
+    if (!canProbe(board, SyzygyTable.MAX_PIECES)) return FAIL;
+
+    level = 0;
+    state = OK;
+    final int wdl = search(board, false);
+    return (state == FAILED) ? FAIL : wdl;
+  }
+
+  public int probeDtz(final Board board) {
+    if (!canProbe(board, SyzygyTable.MAX_PIECES)) return FAIL;
+
+    level = 0;
+    final int dtz = dtz(board);
+    return (state == FAILED) ? FAIL : dtz;
+  }
+
+  public int filterRootMoves(final Board board, final int[] rootMoves, final int count) {
+    if (!canProbe(board, SyzygyTable.MAX_PIECES)) return -1;
+
+    final int reversibleMoves = board.reversibleMoves();
+    final boolean repetition = board.isRepetition();
+    int bestRank = Integer.MIN_VALUE;
+
+    for (int i = 0; i < count; i++) {
+      final int move = rootMoves[i];
+      int dtz;
+
+      level = 0;
+      state = OK;
+      board.make(move);
+      if (board.reversibleMoves() == 0) {
+        dtz = beforeZeroing(-search(board, false));
+      } else if (board.isRepetition() || board.reversibleMoves() >= 100) {
+        dtz = 0;
+      } else {
+        dtz = -dtz(board);
+        dtz += Integer.signum(dtz);
+      }
+      if (dtz == 2 && board.inCheck() && MoveGenerator.countLegalMoves(board) == 0) dtz = 1;
+      board.undo(move);
+      if (state == FAILED) return -1;
+
+      if (dtz > 0) {
+        ranks[i] =
+            (dtz + reversibleMoves <= 99 && !repetition)
+                ? MAX_DTZ
+                : MAX_DTZ - (dtz + reversibleMoves);
+      } else if (dtz < 0) {
+        ranks[i] =
+            (-dtz * 2 + reversibleMoves < 100) ? -MAX_DTZ : -MAX_DTZ + (-dtz + reversibleMoves);
+      } else {
+        ranks[i] = 0;
+      }
+      bestRank = max(bestRank, ranks[i]);
+    }
+
+    int filtered = 0;
+    for (int i = 0; i < count; i++) {
+      if (ranks[i] == bestRank) rootMoves[filtered++] = rootMoves[i];
+    }
+    return filtered;
+  }
+
+  private int search(final Board board, final boolean zeroing) {
+    if (level >= MAX_LEVEL) {
+      state = FAILED;
+      return DRAW;
+    }
+
+    final int[] list = moves[level];
+    final int count = legalMoves(board, list);
+    int bestValue = LOSS;
+    int searched = 0;
+
+    for (int i = 0; i < count; i++) {
+      final int move = list[i];
+      if (!isCapture(board, move) && (!zeroing || board.piece(source(move)) != PAWN)) continue;
+
+      searched++;
+      board.make(move);
+      level++;
+      final int value = -search(board, false);
+      level--;
+      board.undo(move);
+
+      if (state == FAILED) return DRAW;
+      if (value > bestValue) {
+        bestValue = value;
+        if (value >= WIN) {
+          state = ZEROING;
+          return value;
+        }
+      }
+    }
+
+    final boolean noMoreMoves = searched > 0 && searched == count;
+    final int value;
+    if (noMoreMoves) {
+      value = bestValue;
+    } else {
+      value = probe(board, false, DRAW);
+      if (state == FAILED) return DRAW;
+    }
+
+    if (bestValue >= value) {
+      state = (bestValue > DRAW || noMoreMoves) ? ZEROING : OK;
+      return bestValue;
+    }
+    state = OK;
+    return value;
+  }
+
+  private int dtz(final Board board) {
+    state = OK;
+    final int wdl = search(board, true);
+    if (state == FAILED || wdl == DRAW) return 0;
+    if (state == ZEROING) return beforeZeroing(wdl);
+
+    int dtz = probe(board, true, wdl);
+    if (state == FAILED) return 0;
+    if (state != CHANGE_SIDE) {
+      return (dtz + ((wdl == BLESSED_LOSS || wdl == CURSED_WIN) ? 100 : 0)) * Integer.signum(wdl);
+    }
+
+    final int[] list = moves[level];
+    final int count = legalMoves(board, list);
+    int minDtz = 0xFFFF;
+
+    for (int i = 0; i < count; i++) {
+      final int move = list[i];
+      final boolean zeroing = isCapture(board, move) || board.piece(source(move)) == PAWN;
+
+      board.make(move);
+      level++;
+      dtz = zeroing ? -beforeZeroing(search(board, false)) : -dtz(board);
+      if (dtz == 1 && board.inCheck() && MoveGenerator.countLegalMoves(board) == 0) minDtz = 1;
+      level--;
+      board.undo(move);
+
+      if (!zeroing) dtz += Integer.signum(dtz);
+      if (dtz < minDtz && Integer.signum(dtz) == Integer.signum(wdl)) minDtz = dtz;
+      if (state == FAILED) return 0;
+    }
+    return (minDtz == 0xFFFF) ? -1 : minDtz;
+  }
+
+  private int probe(final Board board, final boolean distance, final int wdl) {
+    if (Long.bitCount(board.allPieces()) == 2) return DRAW;
+
+    final SyzygyTable table = tables.get(board.materialKey());
+    if (table == null) {
+      state = FAILED;
+      return 0;
+    }
+
+    final int value = table.probe(board, distance, wdl, squares, pieces);
+    if (value == SyzygyTable.FAIL) state = FAILED;
+    else if (value == SyzygyTable.CHANGE_SIDE) state = CHANGE_SIDE;
+    return value;
+  }
+
+  private static int legalMoves(final Board board, final int[] moves) {
+    if (board.inCheck()) return MoveGenerator.evasionMoves(board, moves, true);
+
+    final int count = MoveGenerator.tacticalMoves(board, moves, true);
+    return MoveGenerator.quietMoves(board, moves, count, true);
+  }
+
+  private static boolean isCapture(final Board board, final int move) {
+    final int target = target(move);
+    return board.piece(target) != NO_PIECE
+        || (target == board.epSquare() && board.piece(source(move)) == PAWN);
+  }
+
+  private static int beforeZeroing(final int wdl) {
+    return switch (wdl) {
+      case WIN -> 1;
+      case CURSED_WIN -> 101;
+      case BLESSED_LOSS -> -101;
+      case LOSS -> -1;
+      default -> 0;
+    };
+  }
+}
@@ -0,0 +1,680 @@
+package com.jrw.chess.caffeine.search;
+
+import com.jrw.chess.caffeine.core.Attacks;
+import com.jrw.chess.caffeine.core.Zobrist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jrw.chess.caffeine.core.Bitboard.*;
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.core.Side.*;
+import static java.lang.Math.*;
+
+final class SyzygyTable {
+  static final int MAX_PIECES = 7;
+  static final int FAIL = Integer.MIN_VALUE;
+  static final int CHANGE_SIDE = Integer.MIN_VALUE + 1;
+
+  private static final int[] WDL_MAGIC = {0x71, 0xE8, 0x23, 0x5D};
+  private static final int[] DTZ_MAGIC = {0xD7, 0x66, 0x0C, 0xA5};
+  private static final String PIECE_CHARS = "PNBRQK";
+
+  private static final int SIDE_FLAG = 1;
+  private static final int MAPPED_FLAG = 2;
+  private static final int WIN_PLIES_FLAG = 4;
+  private static final int LOSS_PLIES_FLAG = 8;
+  private static final int WIDE_FLAG = 16;
+  private static final int SINGLE_VALUE_FLAG = 128;
+
+  private static final int[] MAP_PAWNS = new int[64];
+  private static final int[] MAP_B1H1H7 = new int[64];
+  private static final int[] MAP_A1D1D4 = new int[64];
+  private static final int[][] MAP_KK = new int[10][64];
+  private static final int[][] BINOMIAL = new int[6][64];
+  private static final int[][] LEAD_PAWN_INDEX = new int[6][64];
+  private static final int[][] LEAD_PAWNS_SIZE = new int[6][4];
+  private static final int[] DTZ_MAP = {1, 3, 0, 2, 0};
+
+  final long key;
+  final long key2;
+  final int pieceCount;
+  private final Path wdlPath;
+  private final Path dtzPath;
+  private final boolean hasPawns;
+  private final boolean hasUniquePieces;
+  private final int[] pawnCount = new int[2];
+  private volatile Data wdl;
+  private volatile Data dtz;
+
+  SyzygyTable(final Path wdlPath, final String name) {
+    final int split = name.indexOf('v');
+    if (split < 1 || name.charAt(0) != 'K' || name.charAt(split + 1) != 'K') {
+      throw new IllegalArgumentException("Bad tablebase name - " + name);
+    }
+
+    final int[][] counts = new int[2][6];
+    for (int i = 0; i < name.length(); i++) {
+      if (i == split) continue;
+
+      final int piece = PIECE_CHARS.indexOf(name.charAt(i));
+      if (piece < 0) throw new IllegalArgumentException("Bad tablebase name - " + name);
+      counts[(i < split) ? WHITE : BLACK][piece]++;
+    }
+
+    final String file = wdlPath.getFileName().toString();
+    this.wdlPath = wdlPath;
+    this.dtzPath = wdlPath.resolveSibling(file.substring(0, file.length() - 1) + "z");
+    this.key = materialKey(counts[WHITE], counts[BLACK]);
+    this.key2 = materialKey(counts[BLACK], counts[WHITE]);
+    this.pieceCount = name.length() - 1;
+    this.hasPawns = counts[WHITE][PAWN] + counts[BLACK][PAWN] > 0;
+
+    boolean unique = false;
+    for (int piece = PAWN; piece < KING; piece++) {
+      unique |= counts[WHITE][piece] == 1 || counts[BLACK][piece] == 1;
+    }
+    this.hasUniquePieces = unique;
+
+    final boolean whiteLeads =
+        counts[BLACK][PAWN] == 0
+            || (counts[WHITE][PAWN] != 0 && counts[BLACK][PAWN] >= counts[WHITE][PAWN]);
+    pawnCount[0] = whiteLeads ? counts[WHITE][PAWN] : counts[BLACK][PAWN];
+    pawnCount[1] = whiteLeads ? counts[BLACK][PAWN] : counts[WHITE][PAWN];
+  }
+
+  static long materialKey(final int[] white, final int[] black) {
+    long key = 0L;
+    for (int piece = PAWN; piece <= KING; piece++) {
+      for (int i = 0; i < white[piece]; i++) key ^= Zobrist.material(WHITE, piece, i);
+      for (int i = 0; i < black[piece]; i++) key ^= Zobrist.material(BLACK, piece, i);
+    }
+    return key;
+  }
+
+  int probe(
+      final Board board,
+      final boolean distance,
+      final int wdlScore,
+      final int[] squares,
+      final int[] pieces) {
+    final Data data = distance ? dtz() : wdl();
+    if (data == null) return FAIL;
+
+    final boolean flip = (key == key2 && board.sideToMove() == BLACK) || board.materialKey() != key;
+    final int flipSide = flip ? 1 : 0;
+    final int flipSquares = flip ? 56 : 0;
+    final int side = flipSide ^ board.sideToMove();
+    int size = 0;
+    int leadPawnCount = 0;
+    int tableFile = 0;
+    long leadPawns = 0L;
+
+    if (hasPawns) {
+      final int leadSide = (data.pairs[0][0].pieces[0] >>> 3) ^ flipSide;
+
+      leadPawns = board.pawns(leadSide);
+      for (long pawns = leadPawns; pawns != 0L; pawns = pop(pawns)) {
+        squares[size++] = peek(pawns) ^ flipSquares;
+      }
+      leadPawnCount = size;
+
+      int lead = 0;
+      for (int i = 1; i < leadPawnCount; i++) {
+        if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[lead]]) lead = i;
+      }
+      swap(squares, 0, lead);
+      tableFile = min(squares[0] & 7, 7 - (squares[0] & 7));
+    }
+
+    final Pairs d = data.pairs[side % data.sides][tableFile];
+    if (distance && (d.flags & SIDE_FLAG) != side && (key != key2 || hasPawns)) {
+      return CHANGE_SIDE;
+    }
+
+    for (long rest = board.allPieces() ^ leadPawns; rest != 0L; rest = pop(rest)) {
+      final int square = peek(rest);
+      final int owner = contains(board.allPieces(WHITE), square) ? WHITE : BLACK;
+
+      squares[size] = square ^ flipSquares;
+      pieces[size++] = ((owner ^ flipSide) << 3) | (board.piece(square) + 1);
+    }
+
+    for (int i = leadPawnCount; i < size - 1; i++) {
+      for (int j = i + 1; j < size; j++) {
+        if (d.pieces[i] == pieces[j]) {
+          swap(pieces, i, j);
+          swap(squares, i, j);
+          break;
+        }
+      }
+    }
+
+    if ((squares[0] & 7) > 3) {
+      for (int i = 0; i < size; i++) squares[i] ^= 7;
+    }
+
+    long index;
+    if (hasPawns) {
+      index = LEAD_PAWN_INDEX[leadPawnCount][squares[0]];
+      sortByPawnMap(squares, 1, leadPawnCount);
+      for (int i = 1; i < leadPawnCount; i++) {
+        index += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+      }
+    } else {
+      if ((squares[0] >>> 3) > 3) {
+        for (int i = 0; i < size; i++) squares[i] ^= 56;
+      }
+
+      for (int i = 0; i < d.groupLength[0]; i++) {
+        final int offset = diagonalOffset(squares[i]);
+        if (offset == 0) continue;
+
+        if (offset > 0) {
+          for (int j = i; j < size; j++) {
+            squares[j] = ((squares[j] >>> 3) | (squares[j] << 3)) & 63;
+          }
+        }
+        break;
+      }
+
+      if (hasUniquePieces) {
+        final int adjust1 = (squares[1] > squares[0]) ? 1 : 0;
+        final int adjust2 =
+            ((squares[2] > squares[0]) ? 1 : 0) + ((squares[2] > squares[1]) ? 1 : 0);
+
+        if (diagonalOffset(squares[0]) != 0) {
+          index =
+              (MAP_A1D1D4[squares[0]] * 63L + (squares[1] - adjust1)) * 62L + squares[2] - adjust2;
+        } else if (diagonalOffset(squares[1]) != 0) {
+          index =
+              (6L * 63 + (squares[0] >>> 3) * 28 + MAP_B1H1H7[squares[1]]) * 62
+                  + squares[2]
+                  - adjust2;
+        } else if (diagonalOffset(squares[2]) != 0) {
+          index =
+              6L * 63 * 62
+                  + 4 * 28 * 62
+                  + (squares[0] >>> 3) * 7 * 28
+                  + ((squares[1] >>> 3) - adjust1) * 28
+                  + MAP_B1H1H7[squares[2]];
+        } else {
+          index =
+              6L * 63 * 62
+                  + 4 * 28 * 62
+                  + 4 * 7 * 28
+                  + (squares[0] >>> 3) * 7 * 6
+                  + ((squares[1] >>> 3) - adjust1) * 6
+                  + ((squares[2] >>> 3) - adjust2);
+        }
+      } else {
+        index = MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+      }
+    }
+
+    index *= d.groupIndex[0];
+    int group = d.groupLength[0];
+    boolean remainingPawns = hasPawns && pawnCount[1] > 0;
+
+    for (int next = 1; d.groupLength[next] != 0; next++) {
+      final int length = d.groupLength[next];
+      Arrays.sort(squares, group, group + length);
+
+      long n = 0L;
+      for (int i = 0; i < length; i++) {
+        int adjust = 0;
+        for (int j = 0; j < group; j++) {
+          if (squares[group + i] > squares[j]) adjust++;
+        }
+        n += BINOMIAL[i + 1][squares[group + i] - adjust - (remainingPawns ? 8 : 0)];
+      }
+
+      remainingPawns = false;
+      index += n * d.groupIndex[next];
+      group += length;
+    }
+
+    final int value = data.decompress(d, index);
+    return distance ? data.distance(tableFile, value, wdlScore) : value - 2;
+  }
+
+  private Data wdl() {
+    Data data = wdl;
+    if (data == null) {
+      synchronized (this) {
+        if ((data = wdl) == null) wdl = data = Data.open(this, wdlPath, false);
+      }
+    }
+    return data.buffer == null ? null : data;
+  }
+
+  private Data dtz() {
+    Data data = dtz;
+    if (data == null) {
+      synchronized (this) {
+        if ((data = dtz) == null) dtz = data = Data.open(this, dtzPath, true);
+      }
+    }
+    return data.buffer == null ? null : data;
+  }
+
+  private static int diagonalOffset(final int square) {
+    return (square >>> 3) - (square & 7);
+  }
+
+  private static void sortByPawnMap(final int[] squares, final int from, final int to) {
+    for (int i = from + 1; i < to; i++) {
+      final int square = squares[i];
+      int j = i - 1;
+      while (j >= from && MAP_PAWNS[squares[j]] > MAP_PAWNS[square]) {
+        squares[j + 1] = squares[j];
+        j--;
+      }
+      squares[j + 1] = square;
+    }
+  }
+
+  private static void swap(final int[] array, final int i, final int j) {
+    final int value = array[i];
+    array[i] = array[j];
+    array[j] = value;
+  }
+
+  private static final class Data {
+    private final ByteBuffer buffer;
+    private final Pairs[][] pairs;
+    private final int sides;
+    private int map;
+
+    private Data(final ByteBuffer buffer, final Pairs[][] pairs, final int sides) {
+      this.buffer = buffer;
+      this.pairs = pairs;
+      this.sides = sides;
+    }
+
+    private static Data open(final SyzygyTable table, final Path path, final boolean distance) {
+      final ByteBuffer buffer;
+      try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        if (channel.size() > Integer.MAX_VALUE) return new Data(null, null, 1);
+
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+      } catch (final IOException e) {
+        return new Data(null, null, 1);
+      }
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      final int[] magic = distance ? DTZ_MAGIC : WDL_MAGIC;
+      for (int i = 0; i < magic.length; i++) {
+        if (buffer.limit() <= i || (buffer.get(i) & 0xFF) != magic[i])
+          return new Data(null, null, 1);
+      }
+
+      final int sides = (!distance && table.key != table.key2) ? 2 : 1;
+      final int files = table.hasPawns ? 4 : 1;
+      final Pairs[][] pairs = new Pairs[2][4];
+      for (int i = 0; i < 2; i++) {
+        for (int f = 0; f < 4; f++) pairs[i][f] = new Pairs();
+      }
+
+      final Data data = new Data(buffer, pairs, sides);
+      data.setup(table, sides, files, distance);
+      return data;
+    }
+
+    private void setup(
+        final SyzygyTable table, final int sides, final int files, final boolean distance) {
+      final boolean bothPawns = table.hasPawns && table.pawnCount[1] > 0;
+      int offset = 5;
+
+      for (int f = 0; f < files; f++) {
+        final int first = u8(offset);
+        final int second = bothPawns ? u8(offset + 1) : 0xFF;
+        final int[][] order = {
+          {first & 0xF, bothPawns ? second & 0xF : 0xF},
+          {first >>> 4, bothPawns ? second >>> 4 : 0xF}
+        };
+        offset += bothPawns ? 2 : 1;
+
+        for (int k = 0; k < table.pieceCount; k++, offset++) {
+          for (int i = 0; i < sides; i++) {
+            pairs[i][f].pieces[k] = (i == 0) ? u8(offset) & 0xF : u8(offset) >>> 4;
+          }
+        }
+        for (int i = 0; i < sides; i++) {
+          groups(table, pairs[i][f], order[i], f);
+        }
+      }
+      offset += offset & 1;
+
+      for (int f = 0; f < files; f++) {
+        for (int i = 0; i < sides; i++) offset = sizes(pairs[i][f], offset);
+      }
+
+      if (distance) offset = distanceMap(files, offset);
+
+      for (int f = 0; f < files; f++) {
+        for (int i = 0; i < sides; i++) {
+          pairs[i][f].sparseIndex = offset;
+          offset += pairs[i][f].sparseIndexSize * 6;
+        }
+      }
+      for (int f = 0; f < files; f++) {
+        for (int i = 0; i < sides; i++) {
+          pairs[i][f].blockLength = offset;
+          offset += pairs[i][f].blockLengthSize * 2;
+        }
+      }
+      for (int f = 0; f < files; f++) {
+        for (int i = 0; i < sides; i++) {
+          offset = (offset + 0x3F) & ~0x3F;
+          pairs[i][f].data = offset;
+          offset += (int) (pairs[i][f].numBlocks * pairs[i][f].blockSize);
+        }
+      }
+    }
+
+    private void groups(final SyzygyTable table, final Pairs d, final int[] order, final int f) {
+      int n = 0;
+      int firstLength = table.hasPawns ? 0 : table.hasUniquePieces ? 3 : 2;
+
+      d.groupLength[n] = 1;
+      for (int i = 1; i < table.pieceCount; i++) {
+        if (--firstLength > 0 || d.pieces[i] == d.pieces[i - 1]) d.groupLength[n]++;
+        else d.groupLength[++n] = 1;
+      }
+      d.groupLength[++n] = 0;
+
+      final boolean bothPawns = table.hasPawns && table.pawnCount[1] > 0;
+      int next = bothPawns ? 2 : 1;
+      int freeSquares = 64 - d.groupLength[0] - (bothPawns ? d.groupLength[1] : 0);
+      long index = 1L;
+
+      for (int k = 0; next < n || k == order[0] || k == order[1]; k++) {
+        if (k == order[0]) {
+          d.groupIndex[0] = index;
+          index *=
+              table.hasPawns
+                  ? LEAD_PAWNS_SIZE[d.groupLength[0]][f]
+                  : table.hasUniquePieces ? 31332 : 462;
+        } else if (k == order[1]) {
+          d.groupIndex[1] = index;
+          index *= BINOMIAL[d.groupLength[1]][48 - d.groupLength[0]];
+        } else {
+          d.groupIndex[next] = index;
+          index *= BINOMIAL[d.groupLength[next]][freeSquares];
+          freeSquares -= d.groupLength[next++];
+        }
+      }
+      d.groupIndex[n] = index;
+    }
+
+    private int sizes(final Pairs d, int offset) {
+      d.flags = u8(offset++);
+      if ((d.flags & SINGLE_VALUE_FLAG) != 0) {
+        d.minSymbolLength = u8(offset++);
+        return offset;
+      }
+
+      int groups = 0;
+      while (d.groupLength[groups] != 0) groups++;
+      final long size = d.groupIndex[groups];
+
+      d.blockSize = 1L << u8(offset++);
+      d.span = 1L << u8(offset++);
+      d.sparseIndexSize = (int) ((size + d.span - 1) / d.span);
+      final int padding = u8(offset++);
+      d.numBlocks = buffer.getInt(offset) & 0xFFFFFFFFL;
+      offset += 4;
+      d.blockLengthSize = (int) d.numBlocks + padding;
+      d.maxSymbolLength = u8(offset++);
+      d.minSymbolLength = u8(offset++);
+      d.lowestSymbol = offset;
+
+      final int lengths = d.maxSymbolLength - d.minSymbolLength + 1;
+      d.base = new long[lengths];
+      for (int i = lengths - 2; i >= 0; i--) {
+        d.base[i] = (d.base[i + 1] + u16(offset + 2 * i) - u16(offset + 2 * i + 2)) / 2;
+      }
+      for (int i = 0; i < lengths; i++) {
+        d.base[i] <<= 64 - i - d.minSymbolLength;
+      }
+      offset += lengths * 2;
+
+      final int symbols = u16(offset);
+      offset += 2;
+      d.tree = offset;
+      d.symbolLength = new int[symbols];
+
+      final boolean[] visited = new boolean[symbols];
+      for (int symbol = 0; symbol < symbols; symbol++) {
+        if (!visited[symbol]) d.symbolLength[symbol] = symbolLength(d, symbol, visited);
+      }
+      return offset + symbols * 3 + (symbols & 1);
+    }
+
+    private int symbolLength(final Pairs d, final int symbol, final boolean[] visited) {
+      visited[symbol] = true;
+
+      final int right = right(d, symbol);
+      if (right == 0xFFF) return 0;
+
+      final int left = left(d, symbol);
+      if (!visited[left]) d.symbolLength[left] = symbolLength(d, left, visited);
+      if (!visited[right]) d.symbolLength[right] = symbolLength(d, right, visited);
+      return (d.symbolLength[left] + d.symbolLength[right] + 1) & 0xFF;
+    }
+
+    private int distanceMap(final int files, int offset) {
+      map = offset;
+
+      for (int f = 0; f < files; f++) {
+        final Pairs d = pairs[0][f];
+        if ((d.flags & MAPPED_FLAG) == 0) continue;
+
+        if ((d.flags & WIDE_FLAG) != 0) {
+          offset += offset & 1;
+          for (int i = 0; i < 4; i++) {
+            d.mapIndex[i] = (offset - map) / 2 + 1;
+            offset += 2 * u16(offset) + 2;
+          }
+        } else {
+          for (int i = 0; i < 4; i++) {
+            d.mapIndex[i] = offset - map + 1;
+            offset += u8(offset) + 1;
+          }
+        }
+      }
+      return offset + (offset & 1);
+    }
+
+    private int distance(final int f, int value, final int wdlScore) {
+      final Pairs d = pairs[0][f];
+      final int flags = d.flags;
+
+      if ((flags & MAPPED_FLAG) != 0) {
+        final int index = d.mapIndex[DTZ_MAP[wdlScore + 2]] + value;
+        value = ((flags & WIDE_FLAG) != 0) ? u16(map + 2 * index) : u8(map + index);
+      }
+
+      if ((wdlScore == 2 && (flags & WIN_PLIES_FLAG) == 0)
+          || (wdlScore == -2 && (flags & LOSS_PLIES_FLAG) == 0)
+          || wdlScore == 1
+          || wdlScore == -1) {
+        value *= 2;
+      }
+      return value + 1;
+    }
+
+    private int decompress(final Pairs d, final long index) {
+      if ((d.flags & SINGLE_VALUE_FLAG) != 0) return d.minSymbolLength;
+
+      final int k = (int) (index / d.span);
+      final int sparse = d.sparseIndex + 6 * k;
+      int block = buffer.getInt(sparse);
+      int offset = u16(sparse + 4) + (int) (index % d.span - d.span / 2);
+
+      while (offset < 0) offset += blockLength(d, --block) + 1;
+      while (offset > blockLength(d, block)) offset -= blockLength(d, block++) + 1;
+
+      int pointer = (int) (d.data + block * d.blockSize);
+      long bits = Long.reverseBytes(buffer.getLong(pointer));
+      int available = 64;
+      int symbol;
+      pointer += 8;
+
+      while (true) {
+        int length = 0;
+        while (Long.compareUnsigned(bits, d.base[length]) < 0) length++;
+
+        symbol = (int) ((bits - d.base[length]) >>> (64 - length - d.minSymbolLength));
+        symbol = (symbol + u16(d.lowestSymbol + 2 * length)) & 0xFFFF;
+        if (offset < d.symbolLength[symbol] + 1) break;
+
+        offset -= d.symbolLength[symbol] + 1;
+        length += d.minSymbolLength;
+        bits <<= length;
+        available -= length;
+
+        if (available <= 32) {
+          available += 32;
+          bits |= word(pointer) << (64 - available);
+          pointer += 4;
+        }
+      }
+
+      while (d.symbolLength[symbol] != 0) {
+        final int left = left(d, symbol);
+        if (offset < d.symbolLength[left] + 1) {
+          symbol = left;
+        } else {
+          offset -= d.symbolLength[left] + 1;
+          symbol = right(d, symbol);
+        }
+      }
+      return left(d, symbol);
+    }
+
+    // Decoding reads ahead, past the end of the file when the last block is full.
+    private long word(final int offset) {
+      if (offset + 4 <= buffer.limit()) {
+        return Integer.reverseBytes(buffer.getInt(offset)) & 0xFFFFFFFFL;
+      }
+
+      long word = 0L;
+      for (int i = offset; i < offset + 4; i++) {
+        word = (word << 8) | ((i < buffer.limit()) ? u8(i) : 0);
+      }
+      return word;
+    }
+
+    private int blockLength(final Pairs d, final int block) {
+      return u16(d.blockLength + 2 * block);
+    }
+
+    private int left(final Pairs d, final int symbol) {
+      final int offset = d.tree + 3 * symbol;
+      return ((u8(offset + 1) & 0xF) << 8) | u8(offset);
+    }
+
+    private int right(final Pairs d, final int symbol) {
+      final int offset = d.tree + 3 * symbol;
+      return (u8(offset + 2) << 4) | (u8(offset + 1) >>> 4);
+    }
+
+    private int u8(final int offset) {
+      return buffer.get(offset) & 0xFF;
+    }
+
+    private int u16(final int offset) {
+      return buffer.getShort(offset) & 0xFFFF;
+    }
+  }
+
+  private static final class Pairs {
+    private final int[] pieces = new int[MAX_PIECES];
+    private final long[] groupIndex = new long[MAX_PIECES + 1];
+    private final int[] groupLength = new int[MAX_PIECES + 1];
+    private final int[] mapIndex = new int[4];
+    private int flags;
+    private int maxSymbolLength;
+    private int minSymbolLength;
+    private long numBlocks;
+    private long blockSize;
+    private long span;
+    private int lowestSymbol;
+    private int tree;
+    private int blockLength;
+    private int blockLengthSize;
+    private int sparseIndex;
+    private int sparseIndexSize;
+    private int data;
+    private long[] base;
+    private int[] symbolLength;
+  }
+
+  static {
+    int code = 0;
+    for (int square = 0; square < 64; square++) {
+      if (diagonalOffset(square) < 0) MAP_B1H1H7[square] = code++;
+    }
+
+    final List<Integer> diagonal = new ArrayList<>();
+    code = 0;
+    for (int square = 0; square <= 27; square++) {
+      if (diagonalOffset(square) < 0 && (square & 7) <= 3) MAP_A1D1D4[square] = code++;
+      else if (diagonalOffset(square) == 0 && (square & 7) <= 3) diagonal.add(square);
+    }
+    for (final int square : diagonal) MAP_A1D1D4[square] = code++;
+
+    final List<int[]> bothOnDiagonal = new ArrayList<>();
+    code = 0;
+    for (int index = 0; index < 10; index++) {
+      for (int first = 0; first <= 27; first++) {
+        if (MAP_A1D1D4[first] != index || (index == 0 && first != 1)) continue;
+
+        for (int second = 0; second < 64; second++) {
+          if (contains(Attacks.king(first) | ofSquare(first), second)) continue;
+          if (diagonalOffset(first) == 0 && diagonalOffset(second) > 0) continue;
+
+          if (diagonalOffset(first) == 0 && diagonalOffset(second) == 0) {
+            bothOnDiagonal.add(new int[] {index, second});
+          } else {
+            MAP_KK[index][second] = code++;
+          }
+        }
+      }
+    }
+    for (final int[] pair : bothOnDiagonal) MAP_KK[pair[0]][pair[1]] = code++;
+
+    BINOMIAL[0][0] = 1;
+    for (int n = 1; n < 64; n++) {
+      for (int k = 0; k < 6 && k <= n; k++) {
+        BINOMIAL[k][n] = (k > 0 ? BINOMIAL[k - 1][n - 1] : 0) + (k < n ? BINOMIAL[k][n - 1] : 0);
+      }
+    }
+
+    int available = 47;
+    for (int leadPawnCount = 1; leadPawnCount <= 5; leadPawnCount++) {
+      for (int file = 0; file < 4; file++) {
+        int index = 0;
+        for (int rank = 1; rank <= 6; rank++) {
+          final int square = rank * 8 + file;
+          if (leadPawnCount == 1) {
+            MAP_PAWNS[square] = available--;
+            MAP_PAWNS[square ^ 7] = available--;
+          }
+          LEAD_PAWN_INDEX[leadPawnCount][square] = index;
+          index += BINOMIAL[leadPawnCount - 1][MAP_PAWNS[square]];
+        }
+        LEAD_PAWNS_SIZE[leadPawnCount][file] = index;
+      }
+    }
+  }
+}
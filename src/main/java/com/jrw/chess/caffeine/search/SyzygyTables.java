@@ -0,0 +1,68 @@
+package com.jrw.chess.caffeine.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.Math.*;
+
+public final class SyzygyTables {
+  private static final String WDL_SUFFIX = ".rtbw";
+  private static final int SIZE = 1 << 13;
+
+  private final long[] keys = new long[SIZE];
+  private final SyzygyTable[] tables = new SyzygyTable[SIZE];
+  private int count;
+  private int maxPieces;
+
+  public SyzygyTables(final String paths) throws IOException {
+    for (final String path : paths.split(File.pathSeparator)) {
+      if (path.isBlank()) continue;
+
+      try (final DirectoryStream<Path> files =
+          Files.newDirectoryStream(Path.of(path.trim()), "*" + WDL_SUFFIX)) {
+        for (final Path file : files) {
+          final String name = file.getFileName().toString();
+          add(new SyzygyTable(file, name.substring(0, name.length() - WDL_SUFFIX.length())));
+        }
+      }
+    }
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public int maxPieces() {
+    return maxPieces;
+  }
+
+  SyzygyTable get(final long key) {
+    for (int i = (int) key & (SIZE - 1); tables[i] != null; i = (i + 1) & (SIZE - 1)) {
+      if (keys[i] == key) return tables[i];
+    }
+    return null;
+  }
+
+  private void add(final SyzygyTable table) {
+    if (table.pieceCount > SyzygyTable.MAX_PIECES || get(table.key) != null) return;
+    if (2 * (count + 1) > SIZE / 2) {
+      throw new IllegalArgumentException("Too many tablebases - " + (count + 1));
+    }
+
+    put(table.key, table);
+    if (table.key2 != table.key) put(table.key2, table);
+    maxPieces = max(maxPieces, table.pieceCount);
+    count++;
+  }
+
+  private void put(final long key, final SyzygyTable table) {
+    int i = (int) key & (SIZE - 1);
+    while (tables[i] != null) i = (i + 1) & (SIZE - 1);
+
+    keys[i] = key;
+    tables[i] = table;
+  }
+}
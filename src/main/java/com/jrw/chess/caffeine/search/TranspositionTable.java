@@ -0,0 +1,140 @@
+package com.jrw.chess.caffeine.search;
+
+import java.util.Arrays;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+import static com.jrw.chess.caffeine.search.Search.*;
+
+public final class TranspositionTable {
+  public static final int DEFAULT_SIZE_MB = 16;
+
+  public static final int BOUND_NONE = 0;
+  public static final int BOUND_UPPER = 1;
+  public static final int BOUND_LOWER = 2;
+  public static final int BOUND_EXACT = BOUND_UPPER | BOUND_LOWER;
+
+  private static final int BUCKET_SIZE = 8;
+  private static final int BUCKET_SHIFT = 3;
+  private static final int AGE_COUNT = 64;
+
+  private static final int MOVE_MASK = 0xFFFF;
+  private static final int SCORE_MASK = 0xFFFF;
+  private static final int DEPTH_MASK = 0xFF;
+  private static final int BOUND_MASK = 0b11;
+  private static final int AGE_MASK = AGE_COUNT - 1;
+  private static final int MOVE_SHIFT = 0;
+  private static final int SCORE_SHIFT = MOVE_SHIFT + Integer.bitCount(MOVE_MASK);
+  private static final int DEPTH_SHIFT = SCORE_SHIFT + Integer.bitCount(SCORE_MASK);
+  private static final int BOUND_SHIFT = DEPTH_SHIFT + Integer.bitCount(DEPTH_MASK);
+  private static final int AGE_SHIFT = BOUND_SHIFT + Integer.bitCount(BOUND_MASK);
+
+  private final long[] entries;
+  private final long bucketMask;
+  private int age;
+
+  public TranspositionTable() {
+    this(DEFAULT_SIZE_MB);
+  }
+
+  public TranspositionTable(final int megabytes) {
+    final long bytes = Math.max(1L, megabytes) << 20;
+    final long buckets = Long.highestOneBit(bytes / (BUCKET_SIZE * Long.BYTES));
+
+    this.entries = new long[(int) (buckets << BUCKET_SHIFT)];
+    this.bucketMask = buckets - 1;
+  }
+
+  public void clear() {
+    Arrays.fill(entries, 0L);
+    age = 0;
+  }
+
+  public void newSearch() {
+    age = (age + 1) & AGE_MASK;
+  }
+
+  public long probe(final long key) {
+    final int bucket = bucket(key);
+
+    for (int i = bucket; i < bucket + BUCKET_SIZE; i += 2) {
+      final long data = entries[i + 1];
+
+      if ((entries[i] ^ data) == key && data != 0L) {
+        return data;
+      }
+    }
+    return 0L;
+  }
+
+  public void store(
+      final long key, int move, final int score, final int depth, final int bound, final int ply) {
+    final int bucket = bucket(key);
+    int replace = bucket;
+    int replaceValue = Integer.MAX_VALUE;
+
+    for (int i = bucket; i < bucket + BUCKET_SIZE; i += 2) {
+      final long data = entries[i + 1];
+
+      if ((entries[i] ^ data) == key) {
+        if (move == NO_MOVE) move = move(data);
+        replace = i;
+        break;
+      }
+
+      final int value = depth(data) - 8 * ((age - age(data)) & AGE_MASK);
+      if (data == 0L || value < replaceValue) {
+        replace = i;
+        replaceValue = data == 0L ? Integer.MIN_VALUE : value;
+      }
+    }
+
+    final long data = pack(move, toTable(score, ply), depth, bound, age);
+    entries[replace] = key ^ data;
+    entries[replace + 1] = data;
+  }
+
+  public static int move(final long data) {
+    return (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+  }
+
+  public static int score(final long data, final int ply) {
+    return fromTable((short) (data >>> SCORE_SHIFT), ply);
+  }
+
+  public static int depth(final long data) {
+    return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+  }
+
+  public static int bound(final long data) {
+    return (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+  }
+
+  private static int age(final long data) {
+    return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+  }
+
+  private static long pack(
+      final int move, final int score, final int depth, final int bound, final int age) {
+    return ((long) (move & MOVE_MASK) << MOVE_SHIFT)
+        | ((long) (score & SCORE_MASK) << SCORE_SHIFT)
+        | ((long) (depth & DEPTH_MASK) << DEPTH_SHIFT)
+        | ((long) (bound & BOUND_MASK) << BOUND_SHIFT)
+        | ((long) (age & AGE_MASK) << AGE_SHIFT);
+  }
+
+  private static int toTable(final int score, final int ply) {
+    if (score >= TB_WIN - MAX_PLY) return score + ply;
+    if (score <= MAX_PLY - TB_WIN) return score - ply;
+    return score;
+  }
+
+  private static int fromTable(final int score, final int ply) {
+    if (score >= TB_WIN - MAX_PLY) return score - ply;
+    if (score <= MAX_PLY - TB_WIN) return score + ply;
+    return score;
+  }
+
+  private int bucket(final long key) {
+    return (int) (key & bucketMask) << BUCKET_SHIFT;
+  }
+}
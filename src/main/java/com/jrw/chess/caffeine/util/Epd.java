@@ -0,0 +1,347 @@
+package com.jrw.chess.caffeine.util;
+
+import com.jrw.chess.caffeine.core.Piece;
+import com.jrw.chess.caffeine.core.Square;
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.MoveGenerator;
+
+import java.util.Arrays;
+
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.core.Square.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static java.lang.Math.*;
+
+public final class Epd {
+  public static final int MAX_DEPTH = 32;
+
+  private final Board board;
+  private final int[] bestMoves = new int[MoveGenerator.MAX_MOVES];
+  private final int[] avoidMoves = new int[MoveGenerator.MAX_MOVES];
+  private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+  private final long[] perft = new long[MAX_DEPTH + 1];
+  private final StringBuilder id = new StringBuilder();
+  private final StringBuilder comment = new StringBuilder();
+  private int bestMoveCount;
+  private int avoidMoveCount;
+  private int legalMoveCount;
+  private int operationIndex;
+
+  public Epd(final Board board) {
+    this.board = board;
+  }
+
+  public Board board() {
+    return board;
+  }
+
+  public int bestMoveCount() {
+    return bestMoveCount;
+  }
+
+  public int bestMove(final int index) {
+    return bestMoves[index];
+  }
+
+  public int avoidMoveCount() {
+    return avoidMoveCount;
+  }
+
+  public int avoidMove(final int index) {
+    return avoidMoves[index];
+  }
+
+  public CharSequence id() {
+    return id;
+  }
+
+  public CharSequence comment() {
+    return comment;
+  }
+
+  public long perft(final int depth) {
+    return (depth >= 0 && depth <= MAX_DEPTH) ? perft[depth] : -1L;
+  }
+
+  public int operationIndex() {
+    return operationIndex;
+  }
+
+  public StringBuilder san(final int move, final StringBuilder s) {
+    final int source = source(move);
+    final int target = target(move);
+    final int piece = board.piece(source);
+
+    if (piece == KING && abs(target - source) == 2) {
+      s.append((target > source) ? "O-O" : "O-O-O");
+    } else {
+      final boolean capture =
+          board.piece(target) != NO_PIECE || (piece == PAWN && source % 8 != target % 8);
+
+      if (piece != PAWN) {
+        s.append(Character.toUpperCase(Piece.string(piece).charAt(0)));
+        disambiguate(move, s);
+      } else if (capture) {
+        s.append(Square.string(source).charAt(0));
+      }
+      if (capture) s.append('x');
+      s.append(Square.string(target));
+      if (promotion(move) != NO_PIECE) {
+        s.append('=').append(Character.toUpperCase(Piece.string(promotion(move)).charAt(0)));
+      }
+    }
+
+    board.make(move);
+    if (board.inCheck()) s.append((MoveGenerator.countLegalMoves(board) == 0) ? '#' : '+');
+    board.undo(move);
+    return s;
+  }
+
+  public void parse(final CharSequence line) {
+    parse(line, 0, line.length());
+  }
+
+  public void parse(final CharSequence line, final int start, final int end) {
+    bestMoveCount = 0;
+    avoidMoveCount = 0;
+    legalMoveCount = -1;
+    id.setLength(0);
+    comment.setLength(0);
+    Arrays.fill(perft, -1L);
+
+    int index = board.setup(line, start, end);
+    operationIndex = index;
+    while ((index = skip(line, index, end)) < end) {
+      final int opcode = index;
+      while (index < end && !isSpace(line.charAt(index)) && line.charAt(index) != ';') index++;
+      index = operation(line, opcode, index, end);
+    }
+  }
+
+  private int operation(final CharSequence line, final int opcode, int index, final int end) {
+    final int length = index - opcode;
+    final char first = line.charAt(opcode);
+
+    if (length == 2 && first == 'b' && line.charAt(opcode + 1) == 'm') {
+      return moves(line, index, end, bestMoves, true);
+    } else if (length == 2 && first == 'a' && line.charAt(opcode + 1) == 'm') {
+      return moves(line, index, end, avoidMoves, false);
+    } else if (length == 2 && first == 'i' && line.charAt(opcode + 1) == 'd') {
+      return string(line, index, end, id);
+    } else if (length == 2 && first == 'c' && line.charAt(opcode + 1) == '0') {
+      return string(line, index, end, comment);
+    } else if (length > 1 && first == 'D' && isDigits(line, opcode + 1, index)) {
+      final int depth = (int) number(line, opcode + 1, index);
+      final int operand = skipSpaces(line, index, end);
+      int last = operand;
+      while (last < end && isDigit(line.charAt(last))) last++;
+      if (last == operand || depth > MAX_DEPTH) throw badEpd(line, opcode, end);
+
+      perft[depth] = number(line, operand, last);
+      return last;
+    }
+    return string(line, index, end, null);
+  }
+
+  private int moves(
+      final CharSequence line, int index, final int end, final int[] moves, final boolean best) {
+    int count = 0;
+    while ((index = skipSpaces(line, index, end)) < end && line.charAt(index) != ';') {
+      final int token = index;
+      while (index < end && !isSpace(line.charAt(index)) && line.charAt(index) != ';') index++;
+      moves[count++] = move(line, token, index);
+    }
+
+    if (best) bestMoveCount = count;
+    else avoidMoveCount = count;
+    return index;
+  }
+
+  private int string(final CharSequence line, int index, final int end, final StringBuilder s) {
+    index = skipSpaces(line, index, end);
+    if (index < end && line.charAt(index) == '"') {
+      final int start = ++index;
+      while (index < end && line.charAt(index) != '"') index++;
+      if (s != null) s.append(line, start, index);
+      return min(index + 1, end);
+    }
+
+    final int start = index;
+    while (index < end && line.charAt(index) != ';') index++;
+    int last = index;
+    while (last > start && isSpace(line.charAt(last - 1))) last--;
+    if (s != null) s.append(line, start, last);
+    return index;
+  }
+
+  private int move(final CharSequence line, final int start, final int end) {
+    int last = end;
+    while (last > start && "+#!?".indexOf(line.charAt(last - 1)) >= 0) last--;
+
+    if (isCastling(line, start, last)) {
+      final int king = board.king(board.sideToMove());
+      final int target = (last - start > 3) ? king - 2 : king + 2;
+      return find(line, start, end, KING, king % 8, king / 8, target, NO_PIECE);
+    }
+
+    int promotion = NO_PIECE;
+    if (last > start && !isRank(line.charAt(last - 1))) {
+      promotion = pieceOf(line.charAt(--last));
+      if (promotion < KNIGHT || promotion > QUEEN) throw badMove(line, start, end);
+      if (last > start && line.charAt(last - 1) == '=') last--;
+    }
+    if (last - start < 2 || !isFile(line.charAt(last - 2)) || !isRank(line.charAt(last - 1))) {
+      throw badMove(line, start, end);
+    }
+    final int target = at(line.charAt(last - 2) - 'a', line.charAt(last - 1) - '1');
+
+    int index = start;
+    int piece = -1;
+    if ("NBRQK".indexOf(line.charAt(index)) >= 0) piece = pieceOf(line.charAt(index++));
+
+    int file = -1;
+    int rank = -1;
+    for (; index < last - 2; index++) {
+      final char c = line.charAt(index);
+      if (isFile(c)) file = c - 'a';
+      else if (isRank(c)) rank = c - '1';
+      else if (c != 'x' && c != '-' && c != ':') throw badMove(line, start, end);
+    }
+    if (piece < 0 && (file < 0 || rank < 0)) piece = PAWN;
+
+    return find(line, start, end, piece, file, rank, target, promotion);
+  }
+
+  private int find(
+      final CharSequence line,
+      final int start,
+      final int end,
+      final int piece,
+      final int file,
+      final int rank,
+      final int target,
+      final int promotion) {
+    if (legalMoveCount < 0) legalMoveCount = legalMoves();
+
+    int found = NO_MOVE;
+    for (int i = 0; i < legalMoveCount; i++) {
+      final int move = legalMoves[i];
+      final int source = source(move);
+
+      if (target(move) == target
+          && promotion(move) == promotion
+          && (piece < 0 || board.piece(source) == piece)
+          && (file < 0 || source % 8 == file)
+          && (rank < 0 || source / 8 == rank)) {
+        if (found != NO_MOVE) throw badMove(line, start, end);
+        found = move;
+      }
+    }
+    if (found == NO_MOVE) throw badMove(line, start, end);
+    return found;
+  }
+
+  private void disambiguate(final int move, final StringBuilder s) {
+    final int source = source(move);
+    boolean ambiguous = false;
+    boolean sameFile = false;
+    boolean sameRank = false;
+
+    legalMoveCount = legalMoves();
+    for (int i = 0; i < legalMoveCount; i++) {
+      final int other = source(legalMoves[i]);
+      if (other == source
+          || target(legalMoves[i]) != target(move)
+          || board.piece(other) != board.piece(source)) {
+        continue;
+      }
+
+      ambiguous = true;
+      sameFile |= other % 8 == source % 8;
+      sameRank |= other / 8 == source / 8;
+    }
+
+    if (ambiguous && (!sameFile || sameRank)) s.append((char) ('a' + source % 8));
+    if (ambiguous && sameFile) s.append((char) ('1' + source / 8));
+  }
+
+  private int legalMoves() {
+    if (board.inCheck()) return MoveGenerator.evasionMoves(board, legalMoves, true);
+
+    final int count = MoveGenerator.tacticalMoves(board, legalMoves, true);
+    return MoveGenerator.quietMoves(board, legalMoves, count, true);
+  }
+
+  private static boolean isCastling(final CharSequence line, final int start, final int end) {
+    final int length = end - start;
+    if (length != 3 && length != 5) return false;
+
+    for (int i = start; i < end; i++) {
+      final char c = line.charAt(i);
+      if (((i - start) % 2 == 0) ? (c != 'O' && c != '0') : (c != '-')) return false;
+    }
+    return true;
+  }
+
+  private static int pieceOf(final char c) {
+    return switch (Character.toUpperCase(c)) {
+      case 'N' -> KNIGHT;
+      case 'B' -> BISHOP;
+      case 'R' -> ROOK;
+      case 'Q' -> QUEEN;
+      case 'K' -> KING;
+      default -> NO_PIECE;
+    };
+  }
+
+  private static long number(final CharSequence s, int index, final int end) {
+    long value = 0L;
+    for (; index < end; index++) {
+      value = value * 10 + s.charAt(index) - '0';
+    }
+    return value;
+  }
+
+  private static boolean isDigits(final CharSequence s, int index, final int end) {
+    for (; index < end; index++) {
+      if (!isDigit(s.charAt(index))) return false;
+    }
+    return true;
+  }
+
+  private static boolean isFile(final char c) {
+    return c >= 'a' && c <= 'h';
+  }
+
+  private static boolean isRank(final char c) {
+    return c >= '1' && c <= '8';
+  }
+
+  private static boolean isDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isSpace(final char c) {
+    return c == ' ' || c == '\t' || c == '\r';
+  }
+
+  private static int skipSpaces(final CharSequence s, int index, final int end) {
+    while (index < end && isSpace(s.charAt(index))) index++;
+    return index;
+  }
+
+  private static int skip(final CharSequence s, int index, final int end) {
+    while (index < end && (isSpace(s.charAt(index)) || s.charAt(index) == ';')) index++;
+    return index;
+  }
+
+  private static IllegalArgumentException badMove(
+      final CharSequence line, final int start, final int end) {
+    return new IllegalArgumentException("Bad EPD move - " + line.subSequence(start, end));
+  }
+
+  private static IllegalArgumentException badEpd(
+      final CharSequence line, final int start, final int end) {
+    return new IllegalArgumentException("Bad EPD operation - " + line.subSequence(start, end));
+  }
+}
@@ -0,0 +1,224 @@
+package com.jrw.chess.caffeine.util;
+
+import com.jrw.chess.caffeine.Engine;
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Limits;
+import com.jrw.chess.caffeine.search.Search;
+import com.jrw.chess.caffeine.search.TranspositionTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+
+public final class EpdAnalysis {
+  private static final int QUEUE_SIZE_PER_THREAD = 4;
+  private static final Task END = new Task(-1L, null);
+  private static final String[] ANNOTATIONS = {"bm", "ce", "acd", "acn"};
+
+  private final int threads;
+  private final int megabytes;
+  private final Limits limits;
+
+  public EpdAnalysis(final int threads, final int megabytes, final Limits limits) {
+    if (threads < 1 || threads > Search.MAX_THREADS) {
+      throw new IllegalArgumentException("Bad thread count - " + threads);
+    }
+
+    this.threads = threads;
+    this.megabytes = megabytes;
+    this.limits = limits;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println(
+          "Usage: EpdAnalysis <input> <output> <depth> [threads] [hash MB] [nodes] [movetime]");
+      System.exit(1);
+    }
+
+    final Limits.LimitsBuilder limits = Limits.builder().depth(Integer.parseInt(args[2]));
+    if (args.length > 5) limits.nodes(Long.parseLong(args[5]));
+    if (args.length > 6) limits.moveTime(Long.parseLong(args[6]));
+
+    final int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+    final int megabytes =
+        (args.length > 4) ? Integer.parseInt(args[4]) : TranspositionTable.DEFAULT_SIZE_MB;
+    final EpdAnalysis analysis = new EpdAnalysis(threads, megabytes, limits.build());
+
+    final long start = System.nanoTime();
+    final long count;
+    try (final EpdReader in = new EpdReader(Path.of(args[0]));
+        final BufferedWriter out = Files.newBufferedWriter(Path.of(args[1]))) {
+      count = analysis.analyse(in, out);
+    }
+
+    final long nanos = Math.max(1L, System.nanoTime() - start);
+    System.err.printf(
+        "Analysed %d positions in %d ms (%.1f/s)%n",
+        count, nanos / 1_000_000L, count * 1_000_000_000.0 / nanos);
+  }
+
+  public long analyse(final EpdReader in, final Writer out) throws IOException {
+    final int capacity = threads * QUEUE_SIZE_PER_THREAD;
+    final BlockingQueue<Task> work = new ArrayBlockingQueue<>(capacity);
+    final BlockingQueue<Task> pending = new ArrayBlockingQueue<>(capacity);
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads + 1,
+            runnable -> {
+              final Thread thread = new Thread(runnable, "caffeine-analysis");
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    try {
+      final Future<?> reader = executor.submit(() -> read(in, work, pending));
+      for (int i = 0; i < threads; i++) {
+        executor.submit(() -> work(work));
+      }
+
+      long count = 0L;
+      Task task;
+      while ((task = pending.take()) != END) {
+        out.write(task.result.get());
+        out.write(System.lineSeparator());
+        count++;
+      }
+
+      reader.get();
+      return count;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("EPD analysis interrupted", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw new IllegalStateException("EPD analysis failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Void read(
+      final EpdReader in, final BlockingQueue<Task> work, final BlockingQueue<Task> pending)
+      throws IOException, InterruptedException {
+    try {
+      CharSequence line;
+      for (long number = 1L; (line = in.nextLine()) != null; number++) {
+        final Task task = new Task(number, line);
+        pending.put(task);
+        work.put(task);
+      }
+    } finally {
+      pending.put(END);
+      for (int i = 0; i < threads; i++) {
+        work.put(END);
+      }
+    }
+    return null;
+  }
+
+  private Void work(final BlockingQueue<Task> work) throws InterruptedException {
+    final Board board = new Board(Engine.START_POSITION);
+    final Search search =
+        new Search(
+            board,
+            new PrintStream(OutputStream.nullOutputStream()),
+            new TranspositionTable(megabytes));
+    final Epd epd = new Epd(board);
+    final StringBuilder s = new StringBuilder();
+
+    Task task;
+    while ((task = work.take()) != END) {
+      try {
+        task.result.complete(analyse(epd, search, task.line, s));
+      } catch (final RuntimeException e) {
+        System.err.printf("Skipping position %d - %s%n", task.number, e.getMessage());
+        task.result.complete(task.line.toString());
+      } catch (final Throwable e) {
+        task.result.completeExceptionally(e);
+        throw e;
+      }
+    }
+    return null;
+  }
+
+  private String analyse(
+      final Epd epd, final Search search, final CharSequence line, final StringBuilder s) {
+    epd.parse(line);
+    final int move = search.bestMove(limits);
+
+    int end = epd.operationIndex();
+    while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) end--;
+    s.setLength(0);
+    s.append(line, 0, end);
+    copyOperations(line, epd.operationIndex(), s);
+
+    if (move != NO_MOVE) epd.san(move, s.append(" bm ")).append(';');
+    s.append(" ce ").append(search.bestScore()).append(';');
+    s.append(" acd ").append(search.completedDepth()).append(';');
+    s.append(" acn ").append(search.nodes()).append(';');
+    return s.toString();
+  }
+
+  private static void copyOperations(final CharSequence line, int index, final StringBuilder s) {
+    final int end = line.length();
+
+    while (true) {
+      while (index < end
+          && (Character.isWhitespace(line.charAt(index)) || line.charAt(index) == ';')) {
+        index++;
+      }
+      if (index >= end) return;
+
+      final int start = index;
+      boolean quoted = false;
+      while (index < end && (quoted || line.charAt(index) != ';')) {
+        if (line.charAt(index++) == '"') quoted = !quoted;
+      }
+
+      int last = index;
+      while (Character.isWhitespace(line.charAt(last - 1))) last--;
+      int opcode = start;
+      while (opcode < last && !Character.isWhitespace(line.charAt(opcode))) opcode++;
+
+      if (!isAnnotation(line, start, opcode)) {
+        s.append(' ').append(line, start, last).append(';');
+      }
+    }
+  }
+
+  private static boolean isAnnotation(final CharSequence line, final int start, final int end) {
+    for (final String annotation : ANNOTATIONS) {
+      if (annotation.length() != end - start) continue;
+
+      int i = 0;
+      while (i < annotation.length() && annotation.charAt(i) == line.charAt(start + i)) i++;
+      if (i == annotation.length()) return true;
+    }
+    return false;
+  }
+
+  private static final class Task {
+    private final long number;
+    private final CharSequence line;
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+
+    private Task(final long number, final CharSequence line) {
+      this.number = number;
+      this.line = line;
+    }
+  }
+}
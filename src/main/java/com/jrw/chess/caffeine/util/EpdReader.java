@@ -0,0 +1,134 @@
+package com.jrw.chess.caffeine.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static java.lang.Math.*;
+
+public final class EpdReader implements Closeable {
+  private static final long WINDOW = 1L << 30;
+
+  private final FileChannel channel;
+  private final long size;
+  private final Line line = new Line();
+  private ByteBuffer buffer;
+  private ByteBuffer shared;
+  private long base;
+
+  public EpdReader(final ByteBuffer buffer) {
+    this.channel = null;
+    this.size = buffer.remaining();
+    this.buffer = buffer.slice();
+    this.shared = this.buffer.duplicate();
+  }
+
+  public EpdReader(final Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    map(0L);
+  }
+
+  public boolean next(final Epd epd) throws IOException {
+    if (!advance()) return false;
+
+    epd.parse(line, 0, line.length);
+    return true;
+  }
+
+  // The line stays valid after later reads, so it can be handed to another thread.
+  public CharSequence nextLine() throws IOException {
+    return advance() ? new Line(shared, line.offset, line.length) : null;
+  }
+
+  public void rewind() throws IOException {
+    if (base == 0L) buffer.position(0);
+    else map(0L);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) channel.close();
+  }
+
+  private boolean advance() throws IOException {
+    while (true) {
+      final int start = buffer.position();
+      final int limit = buffer.limit();
+      int end = start;
+      while (end < limit && buffer.get(end) != '\n') end++;
+
+      if (end == limit && base + limit < size) {
+        if (start == 0) throw new IOException("EPD line too long at offset " + base);
+        map(base + start);
+        continue;
+      }
+      if (start == limit) return false;
+
+      buffer.position(min(end + 1, limit));
+      if (isBlank(start, end)) continue;
+
+      line.bounds(buffer, start, end - start);
+      return true;
+    }
+  }
+
+  private void map(final long position) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, min(size - position, WINDOW));
+    shared = buffer.duplicate();
+    base = position;
+  }
+
+  private boolean isBlank(final int start, final int end) {
+    for (int i = start; i < end; i++) {
+      final byte b = buffer.get(i);
+      if (b != ' ' && b != '\t' && b != '\r') return false;
+    }
+    return true;
+  }
+
+  private static final class Line implements CharSequence {
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    private Line() {}
+
+    private Line(final ByteBuffer buffer, final int offset, final int length) {
+      bounds(buffer, offset, length);
+    }
+
+    private void bounds(final ByteBuffer buffer, final int offset, final int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      final char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = charAt(i);
+      }
+      return new String(chars);
+    }
+  }
+}
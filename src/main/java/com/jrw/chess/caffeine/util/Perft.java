@@ -1,40 +1,167 @@
 package com.jrw.chess.caffeine.util;
 
 import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Move;
+import com.jrw.chess.caffeine.search.MoveGenerator;
 import com.jrw.chess.caffeine.search.MoveOrder;
-import lombok.experimental.UtilityClass;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 import static com.jrw.chess.caffeine.search.Move.*;
-import static com.jrw.chess.caffeine.search.Search.*;
+import static java.lang.Math.*;
+
+public final class Perft {
+  private static final int SPLIT_PLIES = 2;
+  private static final int SPLIT_DEPTH = 3;
+
+  private final Board board;
+  private final ForkJoinPool pool;
+  private final PerftTable table;
+
+  public Perft(final Board board) {
+    this(board, null, null);
+  }
+
+  public Perft(final Board board, final ForkJoinPool pool) {
+    this(board, pool, null);
+  }
+
+  public Perft(final Board board, final ForkJoinPool pool, final PerftTable table) {
+    this.board = board;
+    this.pool = pool;
+    this.table = table;
+  }
+
+  public static void main(final String[] args) {
+    if (args.length < 2) {
+      System.err.println("Usage: Perft <fen> <depth> [threads] [hash MB]");
+      System.exit(1);
+    }
+
+    final int depth = Integer.parseInt(args[1]);
+    final int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+    final ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+    final PerftTable table = (args.length > 3) ? new PerftTable(Integer.parseInt(args[3])) : null;
+
+    new Perft(new Board(args[0]), pool, table).divide(depth, System.out);
+  }
+
+  public long count(final int depth) {
+    if (pool != null && depth >= SPLIT_DEPTH) {
+      return pool.invoke(new Task(new Board(board), table, depth, SPLIT_PLIES));
+    }
+    return count(board, table, depth);
+  }
+
+  public long divide(final int depth, final PrintStream out) {
+    final long start = System.nanoTime();
+    final List<Task> tasks = new ArrayList<>();
+    final MoveOrder root = new MoveOrder(board);
+    long nodes = 0L;
+    int move;
+
+    root.setup();
+    while ((move = root.next()) != NO_MOVE) {
+      final Board child = new Board(board);
+      child.make(move);
+      tasks.add(new Task(child, table, depth - 1, (pool == null) ? 0 : SPLIT_PLIES - 1, move));
+    }
+
+    if (pool != null) tasks.forEach(pool::execute);
+    for (final Task task : tasks) {
+      final long count = (pool != null) ? task.join() : task.compute();
+
+      out.printf("%s: %d%n", Move.string(task.move), count);
+      nodes += count;
+    }
 
-@UtilityClass
-public class Perft {
-  private final MoveOrder[] moves = new MoveOrder[MAX_PLY];
+    final long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    out.printf(
+        "%nMoves: %d%nNodes: %d%nTime: %d ms%nNPS: %d%n",
+        tasks.size(), nodes, time, nodes * 1000L / max(1L, time));
+    return nodes;
+  }
 
-  public long count(final Board board, final int depth) {
+  private static long count(final Board board, final PerftTable table, final int depth) {
+    final MoveOrder[] moves = new MoveOrder[max(depth + 1, 1)];
     for (int i = 1; i <= depth; i++) {
       moves[i] = new MoveOrder(board);
     }
-    return doCount(board, depth);
+    return doCount(board, moves, table, depth);
   }
 
-  private long doCount(final Board board, final int depth) {
+  private static long doCount(
+      final Board board, final MoveOrder[] moves, final PerftTable table, final int depth) {
     if (depth <= 0) return 1L;
+    if (depth == 1) return MoveGenerator.countLegalMoves(board);
+    if (table != null) {
+      final long nodes = table.probe(board.key(), depth);
+      if (nodes >= 0L) return nodes;
+    }
 
     long nodes = 0L;
     int move;
 
     moves[depth].setup();
     while ((move = moves[depth].next()) != NO_MOVE) {
-      if (depth == 1) {
-        nodes++;
-      } else {
-        board.make(move);
-        nodes += doCount(board, depth - 1);
-        board.undo(move);
-      }
+      board.make(move);
+      nodes += doCount(board, moves, table, depth - 1);
+      board.undo(move);
     }
 
+    if (table != null) table.store(board.key(), depth, nodes);
     return nodes;
   }
+
+  private static final class Task extends RecursiveTask<Long> {
+    private final Board board;
+    private final PerftTable table;
+    private final int depth;
+    private final int splitPlies;
+    private final int move;
+
+    private Task(final Board board, final PerftTable table, final int depth, final int splitPlies) {
+      this(board, table, depth, splitPlies, NO_MOVE);
+    }
+
+    private Task(
+        final Board board,
+        final PerftTable table,
+        final int depth,
+        final int splitPlies,
+        final int move) {
+      this.board = board;
+      this.table = table;
+      this.depth = depth;
+      this.splitPlies = splitPlies;
+      this.move = move;
+    }
+
+    @Override
+    protected Long compute() {
+      if (splitPlies == 0 || depth < SPLIT_DEPTH) return count(board, table, depth);
+
+      final MoveOrder order = new MoveOrder(board);
+      final List<Task> tasks = new ArrayList<>();
+      int move;
+
+      order.setup();
+      while ((move = order.next()) != NO_MOVE) {
+        final Board child = new Board(board);
+        child.make(move);
+        tasks.add(new Task(child, table, depth - 1, splitPlies - 1));
+      }
+
+      long nodes = 0L;
+      for (final Task task : invokeAll(tasks)) {
+        nodes += task.join();
+      }
+      return nodes;
+    }
+  }
 }
@@ -0,0 +1,61 @@
+package com.jrw.chess.caffeine.util;
+
+import java.util.Arrays;
+
+public final class PerftTable {
+  public static final int DEFAULT_SIZE_MB = 64;
+
+  private static final int BUCKET_SIZE = 4;
+  private static final int BUCKET_SHIFT = 2;
+  private static final int DEPTH_MASK = 0xFF;
+  private static final int COUNT_SHIFT = Integer.bitCount(DEPTH_MASK);
+
+  private final long[] entries;
+  private final long bucketMask;
+
+  public PerftTable() {
+    this(DEFAULT_SIZE_MB);
+  }
+
+  public PerftTable(final int megabytes) {
+    final long bytes = Math.max(1L, megabytes) << 20;
+    final long buckets = Long.highestOneBit(bytes / (BUCKET_SIZE * Long.BYTES));
+
+    this.entries = new long[(int) (buckets << BUCKET_SHIFT)];
+    this.bucketMask = buckets - 1;
+  }
+
+  public void clear() {
+    Arrays.fill(entries, 0L);
+  }
+
+  public long probe(final long key, final int depth) {
+    final int bucket = bucket(key);
+
+    for (int i = bucket; i < bucket + BUCKET_SIZE; i += 2) {
+      final long data = entries[i + 1];
+
+      if ((entries[i] ^ data) == key && depth(data) == depth) {
+        return data >>> COUNT_SHIFT;
+      }
+    }
+    return -1L;
+  }
+
+  public void store(final long key, final int depth, final long count) {
+    final int bucket = bucket(key);
+    final long data = (count << COUNT_SHIFT) | (depth & DEPTH_MASK);
+    final int replace = (depth >= depth(entries[bucket + 1])) ? bucket : bucket + 2;
+
+    entries[replace] = key ^ data;
+    entries[replace + 1] = data;
+  }
+
+  private static int depth(final long data) {
+    return (int) data & DEPTH_MASK;
+  }
+
+  private int bucket(final long key) {
+    return (int) (key & bucketMask) << BUCKET_SHIFT;
+  }
+}
@@ -0,0 +1,977 @@
+/*
+ * Generates the Syzygy tables in src/test/resources/syzygy.
+ *
+ *   cc -O2 -o tbgen src/test/c/tbgen.c && ./tbgen src/test/resources/syzygy
+ *
+ * The tables are solved from scratch and written in the Syzygy file format (Stockfish indexing,
+ * Re-Pair pairs and canonical Huffman codes). Only what the tests need is supported:
+ * white is the stronger side and every table has a unique piece. Values that the probe never
+ * reads (positions whose best move is a capture) are filled with whatever compresses best, so
+ * the files are not byte-identical to the official ones, but every probed value is.
+ */
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <stdint.h>
+
+enum { PAWN = 1, KNIGHT, BISHOP, ROOK, QUEEN, KING };
+#define W(t) (t)
+#define B(t) (8 + (t))
+#define LOSS (-2)
+#define DRAW 0
+#define WIN 2
+#define ILLEGAL 99
+#define UNKNOWN 100
+#define UNSET 255
+
+static void die(const char *m) { fprintf(stderr, "fatal: %s\n", m); exit(1); }
+
+/* ------------------------------------------------------------------ board */
+static int file_of(int s) { return s & 7; }
+static int rank_of(int s) { return s >> 3; }
+static int on(int f, int r) { return f >= 0 && f < 8 && r >= 0 && r < 8; }
+
+typedef struct { int n; int code[4]; int sq[4]; } Pos;
+
+static int piece_at(const Pos *p, int s) {
+  for (int i = 0; i < p->n; i++) if (p->sq[i] == s) return i;
+  return -1;
+}
+
+static const int KD[8][2] = {{1,0},{-1,0},{0,1},{0,-1},{1,1},{1,-1},{-1,1},{-1,-1}};
+static const int ND[8][2] = {{1,2},{2,1},{-1,2},{-2,1},{1,-2},{2,-1},{-1,-2},{-2,-1}};
+
+static int attacks(const Pos *p, int i, int t) {
+  int s = p->sq[i], type = p->code[i] & 7, color = p->code[i] >> 3;
+  int f = file_of(s), r = rank_of(s), tf = file_of(t), tr = rank_of(t);
+  int df = tf - f, dr = tr - r;
+  switch (type) {
+    case PAWN: return (color == 0 ? dr == 1 : dr == -1) && (df == 1 || df == -1);
+    case KNIGHT: return (df * df + dr * dr) == 5;
+    case KING: return s != t && df >= -1 && df <= 1 && dr >= -1 && dr <= 1;
+    default: {
+      int diag = (df == dr || df == -dr) && df != 0;
+      int orth = (df == 0) != (dr == 0);
+      if (!((type == BISHOP && diag) || (type == ROOK && orth) || (type == QUEEN && (diag || orth))))
+        return 0;
+      int sf = (df > 0) - (df < 0), sr = (dr > 0) - (dr < 0);
+      for (int x = f + sf, y = r + sr; x != tf || y != tr; x += sf, y += sr)
+        if (piece_at(p, y * 8 + x) >= 0) return 0;
+      return 1;
+    }
+  }
+}
+
+static int attacked(const Pos *p, int s, int by) {
+  for (int i = 0; i < p->n; i++)
+    if ((p->code[i] >> 3) == by && p->sq[i] != s && attacks(p, i, s)) return 1;
+  return 0;
+}
+
+static int king_sq(const Pos *p, int color) {
+  for (int i = 0; i < p->n; i++) if (p->code[i] == color * 8 + KING) return p->sq[i];
+  die("no king");
+  return -1;
+}
+
+typedef struct { int i, to, promo, cap; } Move;
+
+/* pseudo-legal moves for color c */
+static int gen(const Pos *p, int c, Move *m) {
+  int n = 0;
+  for (int i = 0; i < p->n; i++) {
+    if ((p->code[i] >> 3) != c) continue;
+    int s = p->sq[i], type = p->code[i] & 7, f = file_of(s), r = rank_of(s);
+    if (type == PAWN) {
+      int dir = c == 0 ? 1 : -1, last = c == 0 ? 7 : 0;
+      int t = s + 8 * dir;
+      if (piece_at(p, t) < 0) {
+        if (rank_of(t) == last) for (int pr = KNIGHT; pr <= QUEEN; pr++) m[n++] = (Move){i, t, pr, -1};
+        else m[n++] = (Move){i, t, 0, -1};
+        if (rank_of(s) == (c == 0 ? 1 : 6) && piece_at(p, t + 8 * dir) < 0) m[n++] = (Move){i, t + 8 * dir, 0, -1};
+      }
+      for (int df = -1; df <= 1; df += 2) {
+        if (!on(f + df, r + dir)) continue;
+        int u = t + df, j = piece_at(p, u);
+        if (j >= 0 && (p->code[j] >> 3) != c) {
+          if (rank_of(u) == last) for (int pr = KNIGHT; pr <= QUEEN; pr++) m[n++] = (Move){i, u, pr, j};
+          else m[n++] = (Move){i, u, 0, j};
+        }
+      }
+      continue;
+    }
+    const int (*d)[2] = (type == KNIGHT) ? ND : KD;
+    int slide = type == BISHOP || type == ROOK || type == QUEEN;
+    for (int k = 0; k < 8; k++) {
+      int diag = d[k][0] != 0 && d[k][1] != 0;
+      if (type == BISHOP && !diag) continue;
+      if (type == ROOK && diag) continue;
+      for (int x = f + d[k][0], y = r + d[k][1]; on(x, y); x += d[k][0], y += d[k][1]) {
+        int t = y * 8 + x, j = piece_at(p, t);
+        if (j >= 0) {
+          if ((p->code[j] >> 3) != c) m[n++] = (Move){i, t, 0, j};
+          break;
+        }
+        m[n++] = (Move){i, t, 0, -1};
+        if (!slide) break;
+      }
+    }
+  }
+  return n;
+}
+
+static void apply(const Pos *p, const Move *m, Pos *q) {
+  q->n = 0;
+  for (int i = 0; i < p->n; i++) {
+    if (i == m->cap) continue;
+    q->code[q->n] = (i == m->i && m->promo) ? (p->code[i] & 8) | m->promo : p->code[i];
+    q->sq[q->n++] = (i == m->i) ? m->to : p->sq[i];
+  }
+}
+
+/* ------------------------------------------------------------------ tables */
+typedef struct Table {
+  const char *name;
+  int n;
+  int code[4];
+  size_t size;
+  int8_t *wdl;
+  uint8_t *dist;
+  int solved;
+} Table;
+
+static Table TABLES[16];
+static int TABLE_COUNT;
+
+static Table *find_table(const Pos *p) {
+  int counts[16] = {0};
+  for (int i = 0; i < p->n; i++) counts[p->code[i]]++;
+  for (int t = 0; t < TABLE_COUNT; t++) {
+    int c2[16] = {0};
+    for (int i = 0; i < TABLES[t].n; i++) c2[TABLES[t].code[i]]++;
+    if (TABLES[t].n == p->n && !memcmp(counts, c2, sizeof counts)) return &TABLES[t];
+  }
+  return NULL;
+}
+
+static size_t raw_index(const Table *t, const Pos *p, int stm) {
+  size_t idx = stm;
+  int used[4] = {0};
+  for (int k = 0; k < t->n; k++) {
+    int found = -1;
+    for (int i = 0; i < p->n; i++)
+      if (!used[i] && p->code[i] == t->code[k]) { found = i; break; }
+    if (found < 0) die("material mismatch");
+    used[found] = 1;
+    idx = idx * 64 + p->sq[found];
+  }
+  return idx;
+}
+
+static void raw_pos(const Table *t, size_t idx, Pos *p, int *stm) {
+  p->n = t->n;
+  for (int k = t->n - 1; k >= 0; k--) { p->sq[k] = idx % 64; p->code[k] = t->code[k]; idx /= 64; }
+  *stm = (int) idx;
+}
+
+static int legal(const Pos *p, int stm) {
+  for (int i = 0; i < p->n; i++) {
+    for (int j = i + 1; j < p->n; j++) if (p->sq[i] == p->sq[j]) return 0;
+    if ((p->code[i] & 7) == PAWN && (rank_of(p->sq[i]) == 0 || rank_of(p->sq[i]) == 7)) return 0;
+  }
+  return !attacked(p, king_sq(p, stm ^ 1), stm);
+}
+
+/* value of a child position (from the child's side to move), exits included */
+static int child_value(const Table *t, const Pos *q, int stm, int *dist) {
+  *dist = -1;
+  if (q->n == 2) return DRAW;
+  Table *c = find_table(q);
+  if (!c) die("missing subtable");
+  size_t idx = raw_index(c, q, stm);
+  if (c == t) { *dist = t->dist ? t->dist[idx] : -1; return t->wdl[idx]; }
+  if (!c->solved) die("subtable not solved");
+  return c->wdl[idx];
+}
+
+static int legal_moves(const Pos *p, int stm, Move *out) {
+  Move m[256];
+  int n = gen(p, stm, m), k = 0;
+  for (int i = 0; i < n; i++) {
+    Pos q;
+    apply(p, &m[i], &q);
+    if (!attacked(&q, king_sq(&q, stm), stm ^ 1)) out[k++] = m[i];
+  }
+  return k;
+}
+
+static int zeroing(const Pos *p, const Move *m) {
+  return m->cap >= 0 || (p->code[m->i] & 7) == PAWN;
+}
+
+static void stats(const Table *t) {
+  long counts[2][5] = {{0}};
+  int maxd[2][2] = {{0}};
+  for (size_t i = 0; i < t->size; i++) {
+    int s = (int) (i / (t->size / 2));
+    if (t->wdl[i] == ILLEGAL) continue;
+    counts[s][t->wdl[i] + 2]++;
+    if (t->wdl[i] == WIN && t->dist[i] > maxd[s][0]) maxd[s][0] = t->dist[i];
+    if (t->wdl[i] == LOSS && t->dist[i] > maxd[s][1]) maxd[s][1] = t->dist[i];
+  }
+  for (int s = 0; s < 2; s++)
+    fprintf(stderr, "%s %s: win %ld draw %ld loss %ld, max dtz win %d loss %d\n", t->name,
+            s ? "btm" : "wtm", counts[s][4], counts[s][2], counts[s][0], maxd[s][0], maxd[s][1]);
+}
+
+static void solve(Table *t) {
+  t->size = 2;
+  for (int i = 0; i < t->n; i++) t->size *= 64;
+  t->wdl = malloc(t->size);
+  t->dist = malloc(t->size);
+  memset(t->dist, UNSET, t->size);
+
+  Pos p;
+  int stm;
+  for (size_t i = 0; i < t->size; i++) {
+    raw_pos(t, i, &p, &stm);
+    t->wdl[i] = legal(&p, stm) ? UNKNOWN : ILLEGAL;
+  }
+
+  /* WDL by fixpoint */
+  Move m[256];
+  for (int changed = 1, sweep = 0; changed; sweep++) {
+    changed = 0;
+    for (size_t i = 0; i < t->size; i++) {
+      if (t->wdl[i] != UNKNOWN) continue;
+      raw_pos(t, i, &p, &stm);
+      int n = legal_moves(&p, stm, m), resolved = 1, draw = 0, win = 0;
+      for (int k = 0; k < n && !win; k++) {
+        Pos q;
+        int d;
+        apply(&p, &m[k], &q);
+        int v = child_value(t, &q, stm ^ 1, &d);
+        if (v == UNKNOWN) resolved = 0;
+        else if (v == LOSS) win = 1;
+        else if (v == DRAW) draw = 1;
+      }
+      int v = UNKNOWN;
+      if (n == 0) v = attacked(&p, king_sq(&p, stm), stm ^ 1) ? LOSS : DRAW;
+      else if (win) v = WIN;
+      else if (resolved) v = draw ? DRAW : LOSS;
+      if (v != UNKNOWN) { t->wdl[i] = v; changed = 1; }
+    }
+  }
+  for (size_t i = 0; i < t->size; i++) if (t->wdl[i] == UNKNOWN) t->wdl[i] = DRAW;
+
+  /* DTZ in plies by levels */
+  size_t pending = 0;
+  for (size_t i = 0; i < t->size; i++) {
+    if (t->wdl[i] != WIN && t->wdl[i] != LOSS) continue;
+    raw_pos(t, i, &p, &stm);
+    if (t->wdl[i] == LOSS && legal_moves(&p, stm, m) == 0) t->dist[i] = 0;
+    else pending++;
+  }
+  for (int level = 1; pending; level++) {
+    if (level > 250) die("dtz does not converge");
+    uint8_t *next = malloc(t->size);
+    memcpy(next, t->dist, t->size);
+    for (size_t i = 0; i < t->size; i++) {
+      if ((t->wdl[i] != WIN && t->wdl[i] != LOSS) || t->dist[i] != UNSET) continue;
+      raw_pos(t, i, &p, &stm);
+      int n = legal_moves(&p, stm, m), ok = (t->wdl[i] == LOSS);
+      for (int k = 0; k < n; k++) {
+        Pos q;
+        int d;
+        apply(&p, &m[k], &q);
+        int v = child_value(t, &q, stm ^ 1, &d), z = zeroing(&p, &m[k]);
+        int c = z ? 1 : (d == UNSET || d < 0) ? 1000 : d + 1;
+        if (t->wdl[i] == WIN) {
+          if (v == LOSS && c <= level) { ok = 1; break; }
+        } else {
+          if (v != WIN) die("loss with non-losing move");
+          if (c > level) { ok = 0; break; }
+        }
+      }
+      if (ok) { next[i] = level; pending--; }
+    }
+    free(t->dist);
+    t->dist = next;
+  }
+  t->solved = 1;
+
+  stats(t);
+}
+
+/* retrograde solver for pawnless tables: un-moves are quiet moves */
+static void solve_retro(Table *t) {
+  t->size = 2;
+  for (int i = 0; i < t->n; i++) t->size *= 64;
+  t->wdl = malloc(t->size);
+  t->dist = malloc(t->size);
+  uint8_t *cnt = calloc(t->size, 1), *noloss = calloc(t->size, 1);
+  memset(t->dist, UNSET, t->size);
+  Pos p;
+  int stm, maxlevel = 0;
+  Move m[256];
+  for (size_t i = 0; i < t->size; i++) {
+    raw_pos(t, i, &p, &stm);
+    if (!legal(&p, stm)) { t->wdl[i] = ILLEGAL; continue; }
+    t->wdl[i] = UNKNOWN;
+    int n = legal_moves(&p, stm, m), inside = 0, win = 0;
+    for (int k = 0; k < n; k++) {
+      if (m[k].cap < 0 && !m[k].promo) { inside++; continue; }
+      Pos q;
+      int d;
+      apply(&p, &m[k], &q);
+      int v = child_value(t, &q, stm ^ 1, &d);
+      if (v == LOSS) win = 1;
+      else if (v == DRAW) noloss[i] = 1;
+    }
+    cnt[i] = inside;
+    if (n == 0) {
+      if (attacked(&p, king_sq(&p, stm), stm ^ 1)) { t->wdl[i] = LOSS; t->dist[i] = 0; }
+      else t->wdl[i] = DRAW;
+    } else if (win) { t->wdl[i] = WIN; t->dist[i] = 1; maxlevel = 1; }
+    else if (!inside) {
+      if (noloss[i]) t->wdl[i] = DRAW;
+      else { t->wdl[i] = LOSS; t->dist[i] = 1; maxlevel = 1; }
+    }
+  }
+  for (int level = 0; level <= maxlevel; level++) {
+    for (size_t i = 0; i < t->size; i++) {
+      if (t->dist[i] != level || (t->wdl[i] != WIN && t->wdl[i] != LOSS)) continue;
+      raw_pos(t, i, &p, &stm);
+      int mover = stm ^ 1;
+      Move u[256];
+      int n = gen(&p, mover, u);
+      for (int k = 0; k < n; k++) {
+        if (u[k].cap >= 0) continue;
+        Pos q = p;
+        q.sq[u[k].i] = u[k].to;
+        if (attacked(&q, king_sq(&q, stm), mover)) continue;
+        size_t j = raw_index(t, &q, mover);
+        if (t->wdl[j] != UNKNOWN) continue;
+        if (t->wdl[i] == LOSS) { t->wdl[j] = WIN; t->dist[j] = level + 1; }
+        else if (--cnt[j] == 0 && !noloss[j]) { t->wdl[j] = LOSS; t->dist[j] = level + 1; }
+        else continue;
+        if (level + 1 > maxlevel) maxlevel = level + 1;
+      }
+    }
+  }
+  for (size_t i = 0; i < t->size; i++) if (t->wdl[i] == UNKNOWN) t->wdl[i] = DRAW;
+  free(cnt);
+  free(noloss);
+  t->solved = 1;
+  stats(t);
+}
+
+/* ------------------------------------------------------------------ encoding */
+static int MapPawns[64], LeadPawnIdx[6][64], LeadPawnsSize[6][4];
+static int MapB1H1H7[64], MapA1D1D4[64], MapKK[10][64];
+static long Binomial[6][64];
+
+static int off_diag(int s) { return rank_of(s) - file_of(s); }
+
+static int king_adjacent(int a, int b) {
+  int df = file_of(a) - file_of(b), dr = rank_of(a) - rank_of(b);
+  return df >= -1 && df <= 1 && dr >= -1 && dr <= 1;
+}
+
+static void init_encoding(void) {
+  int code = 0;
+  for (int s = 0; s < 64; s++) if (off_diag(s) < 0) MapB1H1H7[s] = code++;
+
+  int diagonal[4], nd = 0;
+  code = 0;
+  for (int s = 0; s <= 27; s++) {
+    if (off_diag(s) < 0 && file_of(s) <= 3) MapA1D1D4[s] = code++;
+    else if (off_diag(s) == 0 && file_of(s) <= 3) diagonal[nd++] = s;
+  }
+  for (int i = 0; i < nd; i++) MapA1D1D4[diagonal[i]] = code++;
+
+  int both[64][2], nb = 0;
+  code = 0;
+  for (int idx = 0; idx < 10; idx++)
+    for (int s1 = 0; s1 <= 27; s1++) {
+      if (MapA1D1D4[s1] != idx || (idx == 0 && s1 != 1)) continue;
+      for (int s2 = 0; s2 < 64; s2++) {
+        if (king_adjacent(s1, s2)) continue;
+        if (!off_diag(s1) && off_diag(s2) > 0) continue;
+        if (!off_diag(s1) && !off_diag(s2)) { both[nb][0] = idx; both[nb++][1] = s2; }
+        else MapKK[idx][s2] = code++;
+      }
+    }
+  for (int i = 0; i < nb; i++) MapKK[both[i][0]][both[i][1]] = code++;
+  if (code != 462) die("MapKK size");
+
+  Binomial[0][0] = 1;
+  for (int n = 1; n < 64; n++)
+    for (int k = 0; k < 6 && k <= n; k++)
+      Binomial[k][n] = (k > 0 ? Binomial[k - 1][n - 1] : 0) + (k < n ? Binomial[k][n - 1] : 0);
+
+  int avail = 47;
+  for (int cnt = 1; cnt <= 5; cnt++)
+    for (int f = 0; f < 4; f++) {
+      int idx = 0;
+      for (int r = 1; r <= 6; r++) {
+        int s = r * 8 + f;
+        if (cnt == 1) { MapPawns[s] = avail--; MapPawns[s ^ 7] = avail--; }
+        LeadPawnIdx[cnt][s] = idx;
+        idx += Binomial[cnt - 1][MapPawns[s]];
+      }
+      LeadPawnsSize[cnt][f] = idx;
+    }
+}
+
+typedef struct {
+  int pieces[4];
+  int order;
+  int group_len[5];
+  long group_idx[5];
+  int n_groups;
+  long size;
+} Layout;
+
+static int has_pawns(const Table *t) {
+  for (int i = 0; i < t->n; i++) if ((t->code[i] & 7) == PAWN) return 1;
+  return 0;
+}
+
+static int has_unique(const Table *t) {
+  int counts[16] = {0};
+  for (int i = 0; i < t->n; i++) counts[t->code[i]]++;
+  for (int c = 0; c < 2; c++)
+    for (int pt = PAWN; pt < KING; pt++) if (counts[c * 8 + pt] == 1) return 1;
+  return 0;
+}
+
+/* groups for one file; the lead group is made the most significant */
+static void layout(const Table *t, const int *pieces, int f, Layout *l) {
+  memcpy(l->pieces, pieces, sizeof l->pieces);
+  int pawns = has_pawns(t), unique = has_unique(t);
+  int n = 0, first = pawns ? 0 : unique ? 3 : 2;
+  l->group_len[0] = 1;
+  for (int i = 1; i < t->n; i++) {
+    if (--first > 0 || pieces[i] == pieces[i - 1]) l->group_len[n]++;
+    else l->group_len[++n] = 1;
+  }
+  l->group_len[++n] = 0;
+  l->n_groups = n;
+  l->order = n - 1;
+
+  int next = 1, free_sq = 64 - l->group_len[0];
+  long idx = 1;
+  for (int k = 0; next < n || k == l->order; k++) {
+    if (k == l->order) {
+      l->group_idx[0] = idx;
+      idx *= pawns ? LeadPawnsSize[l->group_len[0]][f] : unique ? 31332 : 462;
+    } else {
+      l->group_idx[next] = idx;
+      idx *= Binomial[l->group_len[next]][free_sq];
+      free_sq -= l->group_len[next++];
+    }
+  }
+  l->group_idx[n] = idx;
+  l->size = idx;
+}
+
+static void swap(int *a, int i, int j) { int v = a[i]; a[i] = a[j]; a[j] = v; }
+
+/* Syzygy index of a position (white is the stronger side, no colour flip) */
+static long encode(const Table *t, const Layout *lay, const Pos *p, int *file) {
+  int sq[4] = {0}, pc[4] = {0}, size = 0, lead = 0;
+  int pawns = has_pawns(t);
+  int used[4] = {0};
+  *file = 0;
+  if (pawns) {
+    int leadCode = lay[0].pieces[0];
+    for (int i = 0; i < p->n; i++)
+      if (p->code[i] == leadCode) { sq[size] = p->sq[i]; pc[size++] = p->code[i]; used[i] = 1; }
+    lead = size;
+    int best = 0;
+    for (int i = 1; i < lead; i++) if (MapPawns[sq[i]] > MapPawns[sq[best]]) best = i;
+    swap(sq, 0, best);
+    int f = file_of(sq[0]);
+    *file = f < 7 - f ? f : 7 - f;
+  }
+  const Layout *l = &lay[*file];
+  for (int i = 0; i < p->n; i++)
+    if (!used[i]) { sq[size] = p->sq[i]; pc[size++] = p->code[i]; }
+  for (int i = lead; i < size - 1; i++)
+    for (int j = i + 1; j < size; j++)
+      if (l->pieces[i] == pc[j]) { swap(pc, i, j); swap(sq, i, j); break; }
+  for (int i = 0; i < size; i++) if (pc[i] != l->pieces[i]) die("piece order");
+
+  if (file_of(sq[0]) > 3) for (int i = 0; i < size; i++) sq[i] ^= 7;
+
+  long idx;
+  if (pawns) {
+    idx = LeadPawnIdx[lead][sq[0]];
+    for (int i = 1; i < lead; i++)
+      for (int j = i + 1; j < lead; j++)
+        if (MapPawns[sq[j]] < MapPawns[sq[i]]) swap(sq, i, j);
+    for (int i = 1; i < lead; i++) idx += Binomial[i][MapPawns[sq[i]]];
+  } else {
+    if (rank_of(sq[0]) > 3) for (int i = 0; i < size; i++) sq[i] ^= 56;
+    for (int i = 0; i < l->group_len[0]; i++) {
+      if (!off_diag(sq[i])) continue;
+      if (off_diag(sq[i]) > 0)
+        for (int j = i; j < size; j++) sq[j] = ((sq[j] >> 3) | (sq[j] << 3)) & 63;
+      break;
+    }
+    if (!has_unique(t)) die("only unique-piece tables are supported");
+    int a1 = sq[1] > sq[0], a2 = (sq[2] > sq[0]) + (sq[2] > sq[1]);
+    if (off_diag(sq[0]))
+      idx = ((long) MapA1D1D4[sq[0]] * 63 + (sq[1] - a1)) * 62 + sq[2] - a2;
+    else if (off_diag(sq[1]))
+      idx = (6L * 63 + rank_of(sq[0]) * 28 + MapB1H1H7[sq[1]]) * 62 + sq[2] - a2;
+    else if (off_diag(sq[2]))
+      idx = 6L * 63 * 62 + 4 * 28 * 62 + rank_of(sq[0]) * 7 * 28 + (rank_of(sq[1]) - a1) * 28
+          + MapB1H1H7[sq[2]];
+    else
+      idx = 6L * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28 + rank_of(sq[0]) * 7 * 6
+          + (rank_of(sq[1]) - a1) * 6 + (rank_of(sq[2]) - a2);
+  }
+
+  idx *= l->group_idx[0];
+  int g = l->group_len[0];
+  for (int next = 1; l->group_len[next]; next++) {
+    int len = l->group_len[next];
+    for (int i = g; i < g + len; i++)
+      for (int j = i + 1; j < g + len; j++) if (sq[j] < sq[i]) swap(sq, i, j);
+    long n = 0;
+    for (int i = 0; i < len; i++) {
+      int adjust = 0;
+      for (int j = 0; j < g; j++) adjust += sq[g + i] > sq[j];
+      n += Binomial[i + 1][sq[g + i] - adjust];
+    }
+    idx += n * l->group_idx[next];
+    g += len;
+  }
+  if (idx < 0 || idx >= l->size) die("index out of range");
+  return idx;
+}
+
+/* ------------------------------------------------------------------ compression */
+typedef struct { uint8_t *b; size_t n, cap; } Buf;
+
+static void put(Buf *b, const void *d, size_t n) {
+  if (b->n + n > b->cap) { b->cap = (b->n + n) * 2 + 64; b->b = realloc(b->b, b->cap); }
+  memcpy(b->b + b->n, d, n);
+  b->n += n;
+}
+static void put8(Buf *b, int v) { uint8_t x = v; put(b, &x, 1); }
+static void put16(Buf *b, int v) { put8(b, v & 0xFF); put8(b, (v >> 8) & 0xFF); }
+static void put32(Buf *b, uint32_t v) { put16(b, v & 0xFFFF); put16(b, v >> 16); }
+
+typedef struct {
+  int flags;
+  Buf sizes, sparse, lengths, data;
+} Pairs;
+
+#define MAX_SYMBOLS 4095
+
+static int *pair_counts;
+
+static void compress(const uint16_t *values, long n, int flags, int block_log, int span_log,
+                     Pairs *out) {
+  memset(out, 0, sizeof *out);
+  out->flags = flags;
+
+  int single = 1;
+  for (long i = 1; i < n; i++) if (values[i] != values[0]) { single = 0; break; }
+  if (single) {
+    put8(&out->sizes, flags | 128);
+    put8(&out->sizes, values[0]);
+    return;
+  }
+
+  /* leaves */
+  int left[MAX_SYMBOLS + 1], right[MAX_SYMBOLS + 1], len[MAX_SYMBOLS + 1];
+  int nsym = 0, leaf_of[4096];
+  for (int v = 0; v < 4096; v++) leaf_of[v] = -1;
+  uint16_t *seq = malloc(n * sizeof *seq);
+  for (long i = 0; i < n; i++) {
+    int v = values[i];
+    if (leaf_of[v] < 0) { leaf_of[v] = nsym; left[nsym] = v; right[nsym] = 0xFFF; len[nsym++] = 1; }
+    seq[i] = leaf_of[v];
+  }
+
+  /* recursive pairing */
+  if (!pair_counts) pair_counts = calloc(4096 * 4096, sizeof *pair_counts);
+  long m = n;
+  int *touched = malloc(m * sizeof *touched);
+  while (nsym < MAX_SYMBOLS) {
+    long nt = 0, best = -1;
+    int bestCount = 0;
+    for (long i = 0; i + 1 < m; i++) {
+      int key = seq[i] * 4096 + seq[i + 1];
+      if (pair_counts[key]++ == 0) touched[nt++] = key;
+      if (pair_counts[key] > bestCount && len[seq[i]] + len[seq[i + 1]] <= 256) {
+        bestCount = pair_counts[key];
+        best = key;
+      }
+    }
+    for (long i = 0; i < nt; i++) pair_counts[touched[i]] = 0;
+    if (best < 0 || bestCount < 8) break;
+
+    int a = best / 4096, b = best % 4096, s = nsym++;
+    left[s] = a; right[s] = b; len[s] = len[a] + len[b];
+    long k = 0;
+    for (long i = 0; i < m; i++) {
+      if (i + 1 < m && seq[i] == a && seq[i + 1] == b) { seq[k++] = s; i++; }
+      else seq[k++] = seq[i];
+    }
+    m = k;
+  }
+  free(touched);
+
+  /* Huffman code lengths */
+  long freq[MAX_SYMBOLS + 1] = {0};
+  for (long i = 0; i < m; i++) freq[seq[i]]++;
+  int coded[MAX_SYMBOLS + 1], nc = 0;
+  for (int s = 0; s < nsym; s++) if (freq[s]) coded[nc++] = s;
+  int extra = -1;
+  if (nc == 1) { /* one distinct symbol: add a dummy so the code is complete */
+    extra = nsym; left[nsym] = 0; right[nsym] = 0xFFF; len[nsym++] = 1;
+    freq[extra] = 1; coded[nc++] = extra;
+  }
+  int codelen[MAX_SYMBOLS + 1] = {0};
+  {
+    /* simple O(n^2) Huffman over nodes */
+    int total = 2 * nc;
+    long *w = malloc(total * sizeof *w);
+    int *parent = malloc(total * sizeof *parent), *alive = malloc(total * sizeof *alive);
+    for (int i = 0; i < nc; i++) { w[i] = freq[coded[i]]; alive[i] = 1; parent[i] = -1; }
+    int nodes = nc;
+    for (int r = 0; r < nc - 1; r++) {
+      int x = -1, y = -1;
+      for (int i = 0; i < nodes; i++) {
+        if (!alive[i]) continue;
+        if (x < 0 || w[i] < w[x]) { y = x; x = i; }
+        else if (y < 0 || w[i] < w[y]) y = i;
+      }
+      alive[x] = alive[y] = 0;
+      w[nodes] = w[x] + w[y]; alive[nodes] = 1; parent[nodes] = -1;
+      parent[x] = parent[y] = nodes++;
+    }
+    for (int i = 0; i < nc; i++) {
+      int d = 0;
+      for (int j = i; parent[j] >= 0; j = parent[j]) d++;
+      codelen[coded[i]] = d;
+    }
+    free(w); free(parent); free(alive);
+  }
+  int minl = 64, maxl = 0;
+  for (int i = 0; i < nc; i++) {
+    int l = codelen[coded[i]];
+    if (l < minl) minl = l;
+    if (l > maxl) maxl = l;
+  }
+  if (maxl > 32) die("code too long");
+
+  /* renumber: longest codes first, then uncoded symbols */
+  int id[MAX_SYMBOLS + 1], next = 0, count[65] = {0};
+  for (int l = maxl; l >= minl; l--)
+    for (int s = 0; s < nsym; s++)
+      if (codelen[s] == l && (freq[s] || s == extra)) { id[s] = next++; count[l]++; }
+  for (int s = 0; s < nsym; s++) if (!(freq[s] || s == extra)) id[s] = next++;
+  int sym_of[MAX_SYMBOLS + 1];
+  for (int s = 0; s < nsym; s++) sym_of[id[s]] = s;
+
+  uint64_t base[65] = {0};
+  int lowest[65];
+  base[maxl] = 0;
+  lowest[maxl] = 0;
+  for (int l = maxl - 1; l >= minl; l--) {
+    if ((base[l + 1] + count[l + 1]) & 1) die("incomplete code");
+    base[l] = (base[l + 1] + count[l + 1]) / 2;
+    lowest[l] = lowest[l + 1] + count[l + 1];
+  }
+  if (base[minl] + count[minl] != (1ULL << minl)) die("code not complete");
+  uint64_t code_of[MAX_SYMBOLS + 1];
+  for (int s = 0; s < nsym; s++)
+    if (freq[s] || s == extra) code_of[s] = base[codelen[s]] + (id[s] - lowest[codelen[s]]);
+
+  /* sizes section */
+  long block_bits = 8L << block_log;
+  put8(&out->sizes, flags);
+  put8(&out->sizes, block_log);
+  put8(&out->sizes, span_log);
+  long pad_pos = out->sizes.n;
+  put8(&out->sizes, 0);
+  long blocks_pos = out->sizes.n;
+  put32(&out->sizes, 0);
+  put8(&out->sizes, maxl);
+  put8(&out->sizes, minl);
+  for (int l = minl; l <= maxl; l++) put16(&out->sizes, lowest[l]);
+  put16(&out->sizes, nsym);
+  for (int k = 0; k < nsym; k++) {
+    int s = sym_of[k];
+    int l = right[s] == 0xFFF ? left[s] : id[left[s]];
+    int r = right[s] == 0xFFF ? 0xFFF : id[right[s]];
+    put8(&out->sizes, l & 0xFF);
+    put8(&out->sizes, ((l >> 8) & 0xF) | ((r & 0xF) << 4));
+    put8(&out->sizes, r >> 4);
+  }
+  if (nsym & 1) put8(&out->sizes, 0);
+
+  /* blocks */
+  static long block_start_values[1 << 20];
+  long nblocks = 0, values_done = 0;
+  long i = 0;
+  while (i < m) {
+    uint8_t *blk = calloc(1, 1L << block_log);
+    long bits = 0, vals = 0;
+    while (i < m) {
+      int s = seq[i], l = codelen[s];
+      if (bits + l > block_bits || vals + len[s] > 65536) break;
+      for (int b = l - 1; b >= 0; b--, bits++)
+        if ((code_of[s] >> b) & 1) blk[bits >> 3] |= 0x80 >> (bits & 7);
+      vals += len[s];
+      i++;
+    }
+    if (vals == 0) die("symbol does not fit a block");
+    block_start_values[nblocks++] = values_done;
+    values_done += vals;
+    put16(&out->lengths, (int) (vals - 1));
+    put(&out->data, blk, 1L << block_log);
+    free(blk);
+  }
+  if (values_done != n) die("value count");
+
+  long span = 1L << span_log, entries = (n + span - 1) / span;
+  int padding = 0;
+  long b = 0;
+  for (long k = 0; k < entries; k++) {
+    long target = k * span + span / 2;
+    if (target >= n) {
+      if (target - n > 65535) die("span too large");
+      padding = 1;
+      put32(&out->sparse, (uint32_t) nblocks);
+      put16(&out->sparse, (int) (target - n));
+      continue;
+    }
+    while (b + 1 < nblocks && block_start_values[b + 1] <= target) b++;
+    put32(&out->sparse, (uint32_t) b);
+    put16(&out->sparse, (int) (target - block_start_values[b]));
+  }
+  if (padding) put16(&out->lengths, 65535);
+  out->sizes.b[pad_pos] = padding;
+  uint32_t nb = nblocks;
+  memcpy(out->sizes.b + blocks_pos, &nb, 4);
+  free(seq);
+  fprintf(stderr, "  %ld values -> %d symbols, %ld in sequence, %ld blocks\n", n, nsym, m, nblocks);
+}
+
+/* ------------------------------------------------------------------ writing */
+typedef struct {
+  const char *name;
+  int pieces[4];       /* table piece order, same for both sides */
+  int dtz_side;        /* side stored in the DTZ table */
+  int dtz_loss_plies;  /* store losses in plies */
+  int dtz;             /* write a DTZ table */
+} Spec;
+
+static void write_file(const char *path, int dtz, const Table *t, const Layout *lay, int files,
+                       int sides, Pairs pairs[4][2], const Buf *map) {
+  Buf out = {0};
+  static const uint8_t WDL_MAGIC[4] = {0x71, 0xE8, 0x23, 0x5D};
+  static const uint8_t DTZ_MAGIC[4] = {0xD7, 0x66, 0x0C, 0xA5};
+  put(&out, dtz ? DTZ_MAGIC : WDL_MAGIC, 4);
+  put8(&out, 1 | (has_pawns(t) ? 2 : 0));
+  for (int f = 0; f < files; f++) {
+    put8(&out, lay[f].order | (lay[f].order << 4));
+    for (int k = 0; k < t->n; k++) put8(&out, lay[f].pieces[k] | (lay[f].pieces[k] << 4));
+  }
+  if (out.n & 1) put8(&out, 0);
+  for (int f = 0; f < files; f++)
+    for (int s = 0; s < sides; s++) put(&out, pairs[f][s].sizes.b, pairs[f][s].sizes.n);
+  if (dtz) {
+    put(&out, map->b, map->n);
+    if (out.n & 1) put8(&out, 0);
+  }
+  for (int f = 0; f < files; f++)
+    for (int s = 0; s < sides; s++) put(&out, pairs[f][s].sparse.b, pairs[f][s].sparse.n);
+  for (int f = 0; f < files; f++)
+    for (int s = 0; s < sides; s++) put(&out, pairs[f][s].lengths.b, pairs[f][s].lengths.n);
+  for (int f = 0; f < files; f++)
+    for (int s = 0; s < sides; s++) {
+      while (out.n & 63) put8(&out, 0);
+      put(&out, pairs[f][s].data.b, pairs[f][s].data.n);
+    }
+  FILE *fp = fopen(path, "wb");
+  fwrite(out.b, 1, out.n, fp);
+  fclose(fp);
+  fprintf(stderr, "wrote %s (%zu bytes)\n", path, out.n);
+}
+
+static void fill_bounded(uint16_t *v, const uint8_t *known, long n) {
+  long first = -1;
+  for (long i = 0; i < n; i++) if (known[i] == 1 || known[i] == 2) { first = i; break; }
+  if (first < 0) { memset(v, 0, n * sizeof *v); return; }
+  int prev = v[first];
+  for (long i = 0; i < n; i++) {
+    if (known[i] == 2 && prev < v[i]) v[i] = prev;
+    else if (!known[i] || known[i] == 3) v[i] = prev;
+    prev = v[i];
+  }
+}
+
+static void fill_dont_care(uint16_t *v, const uint8_t *known, long n) {
+  long first = -1;
+  for (long i = 0; i < n; i++) if (known[i]) { first = i; break; }
+  if (first < 0) { memset(v, 0, n * sizeof *v); return; }
+  for (long i = 0; i < first; i++) v[i] = v[first];
+  for (long i = first + 1; i < n; i++) if (!known[i]) v[i] = v[i - 1];
+}
+
+static void generate(Table *t, const Spec *spec, const char *dir) {
+  int files = has_pawns(t) ? 4 : 1;
+  Layout lay[4];
+  for (int f = 0; f < files; f++) layout(t, spec->pieces, f, &lay[f]);
+
+  uint16_t *wdl[4][2];
+  uint8_t *known[4][2];
+  int16_t *dtzv[4];
+  for (int f = 0; f < files; f++) {
+    for (int s = 0; s < 2; s++) {
+      wdl[f][s] = calloc(lay[f].size, 2);
+      known[f][s] = calloc(lay[f].size, 1);
+    }
+    dtzv[f] = malloc(lay[f].size * 2);
+    for (long i = 0; i < lay[f].size; i++) dtzv[f][i] = -1;
+  }
+
+  Pos p;
+  int stm;
+  for (size_t i = 0; i < t->size; i++) {
+    if (t->wdl[i] == ILLEGAL) continue;
+    raw_pos(t, i, &p, &stm);
+    int f;
+    long idx = encode(t, lay, &p, &f);
+    int v = t->wdl[i] + 2;
+    /* the probe searches captures first and takes the better result, so any
+       value up to the best capture is acceptable; only captures: not probed */
+    Move m[256];
+    int n = legal_moves(&p, stm, m), captures = 0, best = -3;
+    for (int k = 0; k < n; k++) {
+      if (m[k].cap < 0) continue;
+      Pos q;
+      int d;
+      apply(&p, &m[k], &q);
+      int cv = -child_value(t, &q, stm ^ 1, &d);
+      captures++;
+      if (cv > best) best = cv;
+    }
+    int mode = (captures && captures == n) ? 0 : (best + 2 == v) ? 2 : 1;
+    int cur = known[f][stm][idx];
+    if (cur && wdl[f][stm][idx] != v) die("symmetry mismatch (wdl)");
+    int rank_new = mode == 1 ? 2 : mode, rank_cur = cur == 1 ? 2 : cur;
+    if (!cur || rank_new > rank_cur) { known[f][stm][idx] = mode ? mode : 3; wdl[f][stm][idx] = v; }
+    if (stm == spec->dtz_side && (t->wdl[i] == WIN || t->wdl[i] == LOSS)) {
+      int d = t->dist[i];
+      if (dtzv[f][idx] >= 0 && dtzv[f][idx] != d) die("symmetry mismatch (dtz)");
+      dtzv[f][idx] = d;
+    }
+  }
+
+  char path[512];
+  Pairs pairs[4][2];
+  uint8_t *sidewdl_all[4];
+  for (int f = 0; f < files; f++) {
+    sidewdl_all[f] = malloc(lay[f].size);
+    for (long i = 0; i < lay[f].size; i++) sidewdl_all[f][i] = wdl[f][spec->dtz_side][i];
+  }
+  for (int f = 0; f < files; f++)
+    for (int s = 0; s < 2; s++) {
+      fill_bounded(wdl[f][s], known[f][s], lay[f].size);
+      compress(wdl[f][s], lay[f].size, 0, 6, 10, &pairs[f][s]);
+    }
+  snprintf(path, sizeof path, "%s/%s.rtbw", dir, t->name);
+  write_file(path, 0, t, lay, files, 2, pairs, NULL);
+  if (!spec->dtz) return;
+
+  /* DTZ: map stored values through per-file win/loss maps */
+  Buf map = {0};
+  int loss_plies = spec->dtz_loss_plies;
+  for (int f = 0; f < files; f++) {
+    int used[2][256] = {{0}};
+    uint8_t *sidewdl = malloc(lay[f].size);
+    memcpy(sidewdl, sidewdl_all[f], lay[f].size);
+    uint16_t *vals = calloc(lay[f].size, 2);
+    uint8_t *kn = calloc(lay[f].size, 1);
+    int stored[2][256], nstored[2] = {0, 0}, index_of[2][256];
+    for (long i = 0; i < lay[f].size; i++) {
+      if (dtzv[f][i] < 0) continue;
+      int win = sidewdl[i] == WIN + 2, d = dtzv[f][i], v;
+      if (win) { if (!(d & 1)) die("even win dtz"); v = (d - 1) / 2; }
+      else if (loss_plies) v = d > 0 ? d - 1 : 0;
+      else v = (d > 0 ? d - 1 : 0) / 2;
+      used[win ? 0 : 1][v] = 1;
+    }
+    for (int c = 0; c < 2; c++)
+      for (int v = 0; v < 256; v++)
+        if (used[c][v]) { index_of[c][v] = nstored[c]; stored[c][nstored[c]++] = v; }
+    for (long i = 0; i < lay[f].size; i++) {
+      if (dtzv[f][i] < 0) continue;
+      int win = sidewdl[i] == WIN + 2, d = dtzv[f][i], v;
+      if (win) v = (d - 1) / 2;
+      else if (loss_plies) v = d > 0 ? d - 1 : 0;
+      else v = (d > 0 ? d - 1 : 0) / 2;
+      vals[i] = index_of[win ? 0 : 1][v];
+      kn[i] = 1;
+    }
+    fill_dont_care(vals, kn, lay[f].size);
+    /* maps in WDL order: win, loss, cursed win, blessed loss */
+    for (int c = 0; c < 4; c++) {
+      int cnt = c < 2 ? nstored[c] : 0;
+      put8(&map, cnt);
+      for (int k = 0; k < cnt; k++) put8(&map, stored[c][k]);
+    }
+    int flags = spec->dtz_side | 2 | (loss_plies ? 8 : 0);
+    compress(vals, lay[f].size, flags, 6, 10, &pairs[f][0]);
+    free(sidewdl); free(vals); free(kn);
+  }
+  snprintf(path, sizeof path, "%s/%s.rtbz", dir, t->name);
+  write_file(path, 1, t, lay, files, 1, pairs, &map);
+}
+
+static Table *add_table(const char *name, int n, int c0, int c1, int c2, int c3) {
+  Table *t = &TABLES[TABLE_COUNT++];
+  memset(t, 0, sizeof *t);
+  t->name = name;
+  t->n = n;
+  t->code[0] = c0; t->code[1] = c1; t->code[2] = c2; t->code[3] = c3;
+  return t;
+}
+
+int main(int argc, char **argv) {
+  const char *dir = argc > 1 ? argv[1] : ".";
+  init_encoding();
+
+  Table *kqk = add_table("KQvK", 3, W(KING), W(QUEEN), B(KING), 0);
+  Table *krk = add_table("KRvK", 3, W(KING), W(ROOK), B(KING), 0);
+  Table *kbk = add_table("KBvK", 3, W(KING), W(BISHOP), B(KING), 0);
+  Table *knk = add_table("KNvK", 3, W(KING), W(KNIGHT), B(KING), 0);
+  Table *kpk = add_table("KPvK", 3, W(KING), W(PAWN), B(KING), 0);
+  Table *kbnk = add_table("KBNvK", 4, W(KING), W(BISHOP), W(KNIGHT), B(KING));
+
+  Table *order[] = {kqk, krk, kbk, knk, kpk, kbnk};
+  Spec specs[] = {
+    {"KQvK", {W(QUEEN), W(KING), B(KING), 0}, 0, 0, 1},
+    {"KRvK", {W(KING), W(ROOK), B(KING), 0}, 1, 1, 1},
+    {"KBvK", {W(KING), W(BISHOP), B(KING), 0}, 0, 0, 1},
+    {"KNvK", {W(KING), W(KNIGHT), B(KING), 0}, 0, 0, 1},
+    {"KPvK", {W(PAWN), W(KING), B(KING), 0}, 0, 0, 1},
+    /* the KBNvK DTZ table is 600 KB, so only its WDL table is kept */
+    {"KBNvK", {W(KING), W(BISHOP), B(KING), W(KNIGHT)}, 0, 0, 0},
+  };
+  for (int i = 0; i < 6; i++) {
+    if (i == 5) solve_retro(order[i]);
+    else solve(order[i]);
+    generate(order[i], &specs[i], dir);
+  }
+  return 0;
+}
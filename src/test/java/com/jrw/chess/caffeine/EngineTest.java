@@ -0,0 +1,151 @@
+package com.jrw.chess.caffeine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class EngineTest {
+  @Test
+  void handshakeTest() throws Exception {
+    final String output = run("uci", "setoption name Hash value 4", "isready", "quit");
+
+    assertThat(output, containsString("id name Caffeine"));
+    assertThat(output, containsString("option name Threads"));
+    assertThat(output, containsString("uciok"));
+    assertThat(output, containsString("readyok"));
+  }
+
+  @Test
+  void longGameTest() throws Exception {
+    final String shuffle = " g1f3 g8f6 f3g1 f6g8".repeat(80);
+    final String output =
+        run(
+            "position startpos moves e2e4 e7e5" + shuffle,
+            "go depth 3",
+            "position startpos moves e2e4 e7e5" + shuffle + " g1f3",
+            "go depth 3",
+            "isready",
+            "quit");
+    final String[] lines = output.split("\\R");
+
+    assertThat(count(lines, "bestmove "), is(2L));
+    assertThat(output, containsString("readyok"));
+  }
+
+  @Test
+  void missingKingsTest() throws Exception {
+    final String output =
+        run("position fen 8/8/8/8/8/8/8/8 w - - 0 1", "go depth 1", "isready", "quit");
+
+    assertThat(output, containsString("info string Bad FEN (pieces)"));
+    assertThat(output, containsString("bestmove "));
+    assertThat(output, containsString("readyok"));
+  }
+
+  @Test
+  void ponderTest() throws Exception {
+    final String output =
+        run(
+            "position startpos moves e2e4",
+            "go ponder depth 4",
+            "ponderhit",
+            "isready",
+            "position startpos moves e2e4 e7e5",
+            "go ponder movetime 100",
+            "stop",
+            "quit");
+
+    assertThat(count(output.split("\\R"), "bestmove "), is(2L));
+  }
+
+  @Test
+  void multiPvTest() throws Exception {
+    final String output =
+        run(
+            "setoption name MultiPV value 3",
+            "position fen 6k1/8/8/8/8/8/8/K6R w - - 0 1",
+            "go depth 5",
+            "ucinewgame",
+            "quit");
+    final String[] lines = output.split("\\R");
+    final long firstMoves =
+        Arrays.stream(lines)
+            .filter(line -> line.startsWith("info depth 5 "))
+            .map(line -> line.substring(line.indexOf(" pv ") + 4).split(" ")[0])
+            .distinct()
+            .count();
+
+    assertThat(count(lines, "info depth 5 multipv "), is(3L));
+    assertThat(firstMoves, is(3L));
+    assertThat(count(lines, "bestmove "), is(1L));
+  }
+
+  @Test
+  void evalFileTest() throws Exception {
+    final Path network = Path.of(getClass().getResource("/material.nnue").toURI());
+    final String output =
+        run(
+            "setoption name EvalFile value " + network,
+            "position fen 4k3/8/8/8/8/8/8/3QK3 w - - 0 1",
+            "go depth 3",
+            "ucinewgame",
+            "quit");
+    final String[] lines = output.split("\\R");
+
+    assertThat(output, containsString("Loaded network with 2 hidden units"));
+    assertThat(output, containsString("info depth 3 multipv 1 score cp 900 "));
+    assertThat(count(lines, "bestmove "), is(1L));
+  }
+
+  @Test
+  void illegalMoveTest() throws Exception {
+    final String output = run("position startpos moves e2e5", "quit");
+
+    assertThat(output, containsString("Illegal move - e2e5"));
+  }
+
+  @Test
+  void badFenTest() throws Exception {
+    final String output =
+        run(
+            "position startpos",
+            "position fen 4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+            "position startpos moves e2e4",
+            "quit");
+
+    assertThat(output, containsString("Bad FEN (side to move)"));
+    assertThat(output, not(containsString("Illegal move")));
+  }
+
+  @Test
+  void missingValueTest() throws Exception {
+    final String output = run("position startpos", "go wtime", "go depth", "isready", "quit");
+
+    assertThat(output, containsString("Missing value for wtime"));
+    assertThat(output, containsString("Missing value for depth"));
+    assertThat(output, containsString("readyok"));
+  }
+
+  private String run(final String... commands) throws Exception {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final PrintStream out = new PrintStream(bytes, true);
+    final BufferedReader in = new BufferedReader(new StringReader(String.join("\n", commands)));
+
+    new Engine(in, out).run();
+    return bytes.toString();
+  }
+
+  private long count(final String[] lines, final String prefix) {
+    return Arrays.stream(lines).filter(line -> line.startsWith(prefix)).count();
+  }
+}
@@ -0,0 +1,27 @@
+package com.jrw.chess.caffeine.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.jrw.chess.caffeine.core.AttackTables.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AttackTablesTest {
+  @Test
+  void staleTablesTest() {
+    final long[] tables = AttackTables.tables();
+    assertThat(tables, is(notNullValue()));
+
+    final ByteBuffer buffer = ByteBuffer.allocate(tables.length * Long.BYTES);
+    buffer.asLongBuffer().put(tables);
+    assertThat(AttackTables.parse(buffer.array()), is(tables));
+
+    buffer.putLong((HEADER_OFFSET + 1) * Long.BYTES, tables[HEADER_OFFSET + 1] ^ 1L);
+    assertThat(AttackTables.parse(buffer.array()), is(nullValue()));
+    assertThat(AttackTables.parse(new byte[0]), is(nullValue()));
+  }
+}
@@ -0,0 +1,31 @@
+package com.jrw.chess.caffeine.core;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static com.jrw.chess.caffeine.core.Magics.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class SliderAttacksTest {
+  @TestFactory
+  Stream<DynamicTest> sliderAttacksTest() {
+    return Stream.of("magic", "fancy", "pext", "kogge-stone", "probe")
+        .map(name -> DynamicTest.dynamicTest(name, () -> check(Sliders.select(name))));
+  }
+
+  private void check(final SliderAttacks sliders) {
+    final SplittableRandom random = new SplittableRandom(0x5EEDL);
+
+    for (int i = 0; i < 100_000; i++) {
+      final int square = random.nextInt(64);
+      final long blockers = random.nextLong() & random.nextLong();
+
+      assertThat(sliders.diagonal(square, blockers), is(slide(square, blockers, DIAGONAL)));
+      assertThat(sliders.orthogonal(square, blockers), is(slide(square, blockers, ORTHOGONAL)));
+    }
+  }
+}
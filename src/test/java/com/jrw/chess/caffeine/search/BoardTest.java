@@ -0,0 +1,138 @@
+package com.jrw.chess.caffeine.search;
+
+import com.jrw.chess.caffeine.core.Zobrist;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static com.jrw.chess.caffeine.core.Bitboard.*;
+import static com.jrw.chess.caffeine.core.Piece.*;
+import static com.jrw.chess.caffeine.core.Side.*;
+import static com.jrw.chess.caffeine.core.Square.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BoardTest {
+  private static final int DEPTH = 3;
+
+  @TestFactory
+  Stream<DynamicTest> incrementalStateTest() throws Exception {
+    final URL url = getClass().getResource("/perftsuite.epd");
+    final URI uri = url.toURI();
+    final Path path = Path.of(uri);
+
+    return Files.lines(path).map(line -> createTest(StringUtils.split(line, ";")[0]));
+  }
+
+  DynamicTest createTest(final String fen) {
+    return DynamicTest.dynamicTest(
+        fen,
+        () -> {
+          final Board board = new Board(fen);
+          final MoveOrder[] moves = new MoveOrder[DEPTH + 1];
+
+          for (int i = 1; i <= DEPTH; i++) {
+            moves[i] = new MoveOrder(board);
+          }
+          verify(board, moves, DEPTH);
+        });
+  }
+
+  @Test
+  void repetitionTest() {
+    final Board board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    final int[] moves = {
+      create(G1, F3), create(G8, F6), create(F3, G1), create(F6, G8),
+    };
+
+    for (final int move : moves) {
+      assertThat(board.isRepetition(), is(false));
+      board.make(move);
+    }
+    assertThat(board.isRepetition(), is(true));
+
+    board.make(create(E2, E4));
+    assertThat(board.isRepetition(), is(false));
+  }
+
+  @Test
+  void epSquareTest() {
+    final Board moved = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    moved.make(create(E2, E4));
+    final Board board = new Board("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+
+    assertThat(board.epSquare(), is(NO_SQUARE));
+    assertThat(board.key(), is(moved.key()));
+
+    moved.make(create(D7, D5));
+    moved.make(create(E4, E5));
+    moved.make(create(F7, F5));
+    board.setup("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+
+    assertThat(board.epSquare(), is(F6));
+    assertThat(board.key(), is(moved.key()));
+  }
+
+  private void verify(final Board board, final MoveOrder[] moves, final int depth) {
+    assertThat(board.key(), is(key(board)));
+    assertThat(board.pawnKey(), is(pawnKey(board)));
+    assertThat(board.materialKey(), is(materialKey(board)));
+    assertThat(Evaluation.isConsistent(board), is(true));
+    if (depth == 0) return;
+
+    int move;
+    moves[depth].setup();
+    while ((move = moves[depth].next()) != NO_MOVE) {
+      board.make(move);
+      verify(board, moves, depth - 1);
+      board.undo(move);
+    }
+  }
+
+  private long key(final Board board) {
+    long key =
+        Zobrist.sideToMove(board.sideToMove())
+            ^ Zobrist.castling(board.castling())
+            ^ Zobrist.epSquare(board.epSquare());
+
+    for (int side = WHITE; side <= BLACK; side++) {
+      for (long pieces = board.allPieces(side); pieces != 0L; pieces = pop(pieces)) {
+        final int square = peek(pieces);
+        key ^= Zobrist.piece(side, board.piece(square), square);
+      }
+    }
+    return key;
+  }
+
+  private long pawnKey(final Board board) {
+    long key = 0L;
+
+    for (int side = WHITE; side <= BLACK; side++) {
+      for (long pawns = board.pawns(side); pawns != 0L; pawns = pop(pawns)) {
+        key ^= Zobrist.piece(side, PAWN, peek(pawns));
+      }
+    }
+    return key;
+  }
+
+  private long materialKey(final Board board) {
+    final int[][] counts = new int[2][6];
+    long key = 0L;
+
+    for (int side = WHITE; side <= BLACK; side++) {
+      for (long pieces = board.allPieces(side); pieces != 0L; pieces = pop(pieces)) {
+        final int piece = board.piece(peek(pieces));
+        key ^= Zobrist.material(side, piece, counts[side][piece]++);
+      }
+    }
+    return key;
+  }
+}
@@ -0,0 +1,104 @@
+package com.jrw.chess.caffeine.search;
+
+import com.jrw.chess.caffeine.Engine;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static com.jrw.chess.caffeine.core.Square.*;
+import static com.jrw.chess.caffeine.search.Move.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class BookTest {
+  private static final String CASTLING = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+  @Test
+  void keyTest() {
+    assertThat(key(Engine.START_POSITION), is("463b96181691fc9c"));
+    assertThat(
+        key("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"), is("823c9b50fd114196"));
+    assertThat(
+        key("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2"),
+        is("0756b94461c50fb0"));
+    assertThat(
+        key("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2"), is("662fafb965db29d4"));
+    assertThat(
+        key("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3"),
+        is("22a48b5a8e47ff78"));
+    assertThat(
+        key("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3"), is("652a607ca3f242c1"));
+    assertThat(
+        key("rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4"), is("00fdd303c946bdd9"));
+    assertThat(
+        key("rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3"),
+        is("3c8123ea7b067637"));
+    assertThat(
+        key("rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4"),
+        is("5c3f9b829b279560"));
+  }
+
+  @Test
+  void probeTest() throws Exception {
+    final Board start = new Board(Engine.START_POSITION);
+    final Board castling = new Board(CASTLING);
+    final long[][] entries = {
+      {Polyglot.key(start), entry(E2, E4), 3},
+      {Polyglot.key(start), entry(D2, D4), 1},
+      {Polyglot.key(start), entry(E2, E5), 100},
+      {Polyglot.key(castling), entry(E1, H1), 1},
+      {Polyglot.key(castling), entry(E1, A1), 0}
+    };
+
+    final Path path = Files.createTempFile("book", ".bin");
+    try {
+      Files.write(path, book(entries));
+
+      try (final Book book = new Book(path, new SplittableRandom(1L))) {
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final int[] weights = new int[MoveGenerator.MAX_MOVES];
+
+        assertThat(book.entryCount(), is(5L));
+        assertThat(book.moves(start, moves, weights), is(2));
+        assertThat(book.moves(castling, moves, weights), is(2));
+        assertThat(moves[0], is(create(E1, G1)));
+        assertThat(moves[1], is(create(E1, C1)));
+        assertThat(book.probe(castling), is(create(E1, G1)));
+        assertThat(book.probe(new Board("8/8/8/4k3/8/8/8/KQ6 w - - 0 1")), is(NO_MOVE));
+
+        int e4 = 0;
+        for (int i = 0; i < 400; i++) {
+          if (book.probe(start) == create(E2, E4)) e4++;
+        }
+        assertThat(e4, is(both(greaterThan(250)).and(lessThan(350))));
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static String key(final String fen) {
+    return String.format("%016x", Polyglot.key(new Board(fen)));
+  }
+
+  private static long entry(final int source, final int target) {
+    return (source / 8) << 9 | (source % 8) << 6 | (target / 8) << 3 | (target % 8);
+  }
+
+  private static byte[] book(final long[][] entries) {
+    Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+
+    final ByteBuffer buffer = ByteBuffer.allocate(entries.length * 16);
+    for (final long[] entry : entries) {
+      buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2]).putInt(0);
+    }
+    return buffer.array();
+  }
+}
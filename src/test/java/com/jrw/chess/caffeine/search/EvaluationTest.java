@@ -0,0 +1,62 @@
+package com.jrw.chess.caffeine.search;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class EvaluationTest {
+  @TestFactory
+  Stream<DynamicTest> symmetryTest() throws Exception {
+    final URL url = getClass().getResource("/perftsuite.epd");
+    final URI uri = url.toURI();
+    final Path path = Path.of(uri);
+
+    return Files.lines(path).map(line -> createTest(StringUtils.split(line, ";")[0]));
+  }
+
+  DynamicTest createTest(final String fen) {
+    return DynamicTest.dynamicTest(
+        fen,
+        () -> {
+          final Board board = new Board(fen);
+          final Board flipped = new Board(flip(fen));
+          final PawnTable pawnTable = new PawnTable();
+
+          assertThat(Evaluation.evaluate(flipped), is(Evaluation.evaluate(board)));
+          assertThat(Evaluation.evaluate(board, pawnTable), is(Evaluation.evaluate(board)));
+          assertThat(Evaluation.evaluate(board, pawnTable), is(Evaluation.evaluate(board)));
+          assertThat(pawnTable.hits(), is(greaterThanOrEqualTo(1L)));
+        });
+  }
+
+  private String flip(final String fen) {
+    final String[] tokens = StringUtils.split(fen);
+
+    tokens[0] = StringUtils.swapCase(StringUtils.reverseDelimited(tokens[0], '/'));
+    tokens[1] = tokens[1].equals("w") ? "b" : "w";
+    tokens[2] = tokens[2].equals("-") ? "-" : sortCastling(StringUtils.swapCase(tokens[2]));
+    if (!tokens[3].equals("-")) {
+      tokens[3] = tokens[3].charAt(0) + String.valueOf((char) ('1' + '8' - tokens[3].charAt(1)));
+    }
+    return String.join(" ", tokens);
+  }
+
+  private String sortCastling(final String castling) {
+    final StringBuilder builder = new StringBuilder();
+
+    for (final char c : "KQkq".toCharArray()) {
+      if (castling.indexOf(c) >= 0) builder.append(c);
+    }
+    return builder.toString();
+  }
+}
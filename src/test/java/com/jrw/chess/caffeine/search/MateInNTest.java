@@ -19,6 +19,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 
 public class MateInNTest {
+  private final TranspositionTable table = new TranspositionTable();
+
   @TestFactory
   Stream<DynamicTest> mateInNTest() throws Exception {
     return IntStream.rangeClosed(1, 3).mapToObj(this::createTests).flatMap(Function.identity());
@@ -34,16 +36,17 @@ public class MateInNTest {
   }
 
   DynamicTest createTest(final String line, final int n) {
-    final ByteArrayOutputStream output = new ByteArrayOutputStream();
     final String[] tokens = StringUtils.split(line);
     final String fen = StringUtils.join(tokens, " ", 0, 4);
-    final Board board = new Board(fen);
-    final Search search = new Search(board, new PrintStream(output));
 
     return DynamicTest.dynamicTest(
         line,
         () -> {
-          search.bestMove();
+          final ByteArrayOutputStream output = new ByteArrayOutputStream();
+          final Board board = new Board(fen);
+          final Search search = new Search(board, new PrintStream(output), table);
+
+          search.bestMove(Limits.builder().depth(2 * n).build());
           assertThat(output.toString(), containsString("mate " + n));
         });
   }
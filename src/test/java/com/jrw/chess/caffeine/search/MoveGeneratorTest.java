@@ -0,0 +1,87 @@
+package com.jrw.chess.caffeine.search;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+import static com.jrw.chess.caffeine.search.MoveGenerator.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class MoveGeneratorTest {
+  private static final int DEPTH = 2;
+
+  @TestFactory
+  Stream<DynamicTest> legalMovesTest() throws Exception {
+    final URL url = getClass().getResource("/perftsuite.epd");
+    final URI uri = url.toURI();
+    final Path path = Path.of(uri);
+
+    return Files.lines(path).map(line -> createTest(StringUtils.split(line, ";")[0]));
+  }
+
+  DynamicTest createTest(final String fen) {
+    return DynamicTest.dynamicTest(
+        fen,
+        () -> {
+          final Board board = new Board(fen);
+          final MoveOrder[] moves = new MoveOrder[DEPTH + 1];
+
+          for (int i = 1; i <= DEPTH; i++) {
+            moves[i] = new MoveOrder(board, null, false);
+          }
+          verify(board, moves, DEPTH);
+        });
+  }
+
+  private void verify(final Board board, final MoveOrder[] moves, final int depth) {
+    final int[] legal = generate(board, true);
+    final int[] pseudoLegal = generate(board, false);
+
+    assertThat(Arrays.toString(legal), is(Arrays.toString(pseudoLegal)));
+    assertThat(countLegalMoves(board), is(legal.length));
+    if (!board.inCheck()) {
+      assertThat(Arrays.toString(checks(board, true)), is(Arrays.toString(checks(board, false))));
+    }
+    if (depth == 0) return;
+
+    int move;
+    moves[depth].setup();
+    while ((move = moves[depth].next()) != NO_MOVE) {
+      board.make(move);
+      verify(board, moves, depth - 1);
+      board.undo(move);
+    }
+  }
+
+  private int[] generate(final Board board, final boolean legal) {
+    final int[] moves = new int[MAX_MOVES];
+    final int moveCount =
+        board.inCheck()
+            ? evasionMoves(board, moves, legal)
+            : quietMoves(board, moves, tacticalMoves(board, moves, legal), legal);
+
+    return filter(board, moves, moveCount, legal);
+  }
+
+  private int[] checks(final Board board, final boolean legal) {
+    final int[] moves = new int[MAX_MOVES];
+    return filter(board, moves, quietChecks(board, moves, 0, legal), legal);
+  }
+
+  private int[] filter(final Board board, final int[] moves, final int count, final boolean legal) {
+    return IntStream.of(Arrays.copyOf(moves, count))
+        .filter(move -> legal || isLegal(board, move))
+        .sorted()
+        .toArray();
+  }
+}
@@ -0,0 +1,80 @@
+package com.jrw.chess.caffeine.search;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static com.jrw.chess.caffeine.search.Move.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class NetworkTest {
+  private static final int DEPTH = 2;
+  private static final int HIDDEN = 32;
+
+  @TestFactory
+  Stream<DynamicTest> incrementalAccumulatorTest() throws Exception {
+    final URL url = getClass().getResource("/perftsuite.epd");
+    final URI uri = url.toURI();
+    final Path path = Path.of(uri);
+    final Network network = Network.load(writeNetwork());
+
+    return Files.lines(path).map(line -> createTest(network, StringUtils.split(line, ";")[0]));
+  }
+
+  DynamicTest createTest(final Network network, final String fen) {
+    return DynamicTest.dynamicTest(
+        fen,
+        () -> {
+          final Board board = new Board(fen);
+          final MoveOrder[] moves = new MoveOrder[DEPTH + 1];
+
+          board.setNetwork(network);
+          for (int i = 1; i <= DEPTH; i++) {
+            moves[i] = new MoveOrder(board);
+          }
+          verify(board, network, moves, DEPTH);
+        });
+  }
+
+  private void verify(
+      final Board board, final Network network, final MoveOrder[] moves, final int depth) {
+    final short[] expected = new short[2 * network.hidden()];
+
+    network.refresh(board, expected);
+    assertThat(board.accumulator(), is(expected));
+    if (depth == 0) return;
+
+    int move;
+    moves[depth].setup();
+    while ((move = moves[depth].next()) != NO_MOVE) {
+      board.make(move);
+      verify(board, network, moves, depth - 1);
+      board.undo(move);
+    }
+  }
+
+  private Path writeNetwork() throws IOException {
+    final Path path = Files.createTempFile("random", ".nnue");
+    final Random random = new Random(0L);
+    final int count = HIDDEN * (Network.INPUTS + 3) + 1;
+    final ByteBuffer buffer =
+        ByteBuffer.allocate(count * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    for (int i = 0; i < count; i++) {
+      buffer.putShort((short) (random.nextInt(255) - 127));
+    }
+    path.toFile().deleteOnExit();
+    return Files.write(path, buffer.array());
+  }
+}
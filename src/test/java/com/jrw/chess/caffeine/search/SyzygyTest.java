@@ -0,0 +1,126 @@
+package com.jrw.chess.caffeine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.jrw.chess.caffeine.search.Syzygy.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SyzygyTest {
+  @Test
+  void missingTablesTest() throws Exception {
+    final Path directory = Files.createTempDirectory("syzygy");
+    try {
+      final SyzygyTables tables = new SyzygyTables(directory.toString());
+      final Syzygy syzygy = new Syzygy(tables);
+
+      assertThat(tables.count(), is(0));
+      assertThat(syzygy.probeWdl(new Board("8/8/8/4k3/8/8/8/KQ6 w - - 0 1")), is(FAIL));
+
+      final Path bad = Files.createFile(directory.resolve("KQK.rtbw"));
+      assertThrows(IllegalArgumentException.class, () -> new SyzygyTables(directory.toString()));
+      Files.delete(bad);
+    } finally {
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void wdlTest() throws Exception {
+    final SyzygyTables tables = tables();
+    final Syzygy syzygy = new Syzygy(tables);
+
+    assertThat(tables.count(), is(6));
+    assertThat(tables.maxPieces(), is(4));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/8/8/8/8/K1k5 w - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/4k3/8/8/8/KQ6 w - - 0 1")), is(WIN));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/4k3/8/8/8/KQ6 b - - 0 1")), is(LOSS));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/4K3/8/8/8/kq6 w - - 0 1")), is(LOSS));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/4k3/8/8/8/KR6 w - - 0 1")), is(WIN));
+    assertThat(syzygy.probeWdl(new Board("7K/8/8/8/8/8/1k6/2R5 b - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/4k3/8/8/8/KB6 w - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")), is(WIN));
+    assertThat(syzygy.probeWdl(new Board("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1")), is(LOSS));
+    assertThat(syzygy.probeWdl(new Board("4k3/8/4P3/4K3/8/8/8/8 w - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("k7/8/8/8/8/8/P7/K7 w - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/8/k7/8/7P/7K w - - 0 1")), is(WIN));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/8/4k3/8/7P/7K b - - 0 1")), is(DRAW));
+    assertThat(syzygy.probeWdl(new Board("8/8/8/8/8/8/2k5/KNB5 w - - 0 1")), is(WIN));
+    assertThat(syzygy.probeWdl(new Board("7K/8/8/8/8/8/2k5/2NB4 b - - 0 1")), is(DRAW));
+  }
+
+  @Test
+  void dtzTest() throws Exception {
+    final Syzygy syzygy = new Syzygy(tables());
+
+    assertThat(syzygy.probeDtz(new Board("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1")), is(1));
+    assertThat(syzygy.probeDtz(new Board("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")), is(-1));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/5k2/8/8/1Q6/K7 w - - 0 1")), is(19));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/8/4k3/8/1Q6/K7 b - - 0 1")), is(-20));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/8/8/2k5/1R6/K7 w - - 0 1")), is(31));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/8/8/8/1Rk5/K7 b - - 0 1")), is(-32));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/k7/8/8/K4P2/8 w - - 0 1")), is(19));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/k7/8/K7/6P1/8 b - - 0 1")), is(-20));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/8/8/k7/4P3/4K3 w - - 0 1")), is(1));
+    assertThat(syzygy.probeDtz(new Board("4k3/8/4P3/4K3/8/8/8/8 w - - 0 1")), is(0));
+    assertThat(syzygy.probeDtz(new Board("4k3/4P3/4K3/8/8/8/8/8 w - - 0 1")), is(5));
+    assertThat(syzygy.probeDtz(new Board("8/8/8/8/8/8/2k5/KNB5 w - - 0 1")), is(FAIL));
+  }
+
+  @Test
+  void filterRootMovesTest() throws Exception {
+    final Syzygy syzygy = new Syzygy(tables());
+    final Board board = new Board("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+    final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    int count = MoveGenerator.tacticalMoves(board, moves, true);
+    count = MoveGenerator.quietMoves(board, moves, count, true);
+    count = syzygy.filterRootMoves(board, moves, count);
+
+    assertThat(contains(moves, count, "g1g8"), is(true));
+    assertThat(contains(moves, count, "b6c7"), is(false));
+    assertThat(contains(moves, count, "g1g3"), is(false));
+  }
+
+  private static boolean contains(final int[] moves, final int count, final String move) {
+    return Arrays.stream(moves, 0, count).anyMatch(m -> m == Move.parse(move));
+  }
+
+  @Test
+  void fullLastBlockTest() throws Exception {
+    final Path directory = Files.createTempDirectory("syzygy");
+    final Path wdl = directory.resolve("KQvK.rtbw");
+    final Path dtz = directory.resolve("KQvK.rtbz");
+    try {
+      Files.write(wdl, stripPadding(directory().resolve("KQvK.rtbw")));
+      Files.write(dtz, stripPadding(directory().resolve("KQvK.rtbz")));
+      final Syzygy syzygy = new Syzygy(new SyzygyTables(directory.toString()));
+
+      assertThat(syzygy.probeDtz(new Board("8/8/8/4Q3/8/2K5/8/k7 w - - 0 1")), is(3));
+    } finally {
+      Files.deleteIfExists(wdl);
+      Files.deleteIfExists(dtz);
+      Files.delete(directory);
+    }
+  }
+
+  private static byte[] stripPadding(final Path path) throws Exception {
+    final byte[] bytes = Files.readAllBytes(path);
+    int length = bytes.length;
+    while (bytes[length - 1] == 0) length--;
+    return Arrays.copyOf(bytes, length);
+  }
+
+  private SyzygyTables tables() throws Exception {
+    return new SyzygyTables(directory().toString());
+  }
+
+  private Path directory() throws Exception {
+    return Path.of(getClass().getResource("/syzygy").toURI());
+  }
+}
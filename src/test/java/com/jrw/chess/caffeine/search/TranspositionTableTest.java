@@ -0,0 +1,29 @@
+package com.jrw.chess.caffeine.search;
+
+import org.junit.jupiter.api.Test;
+
+import static com.jrw.chess.caffeine.search.Search.*;
+import static com.jrw.chess.caffeine.search.TranspositionTable.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TranspositionTableTest {
+  private static final long KEY = 0x123456789ABCDEFL;
+
+  @Test
+  void plyAdjustmentTest() {
+    final TranspositionTable table = new TranspositionTable(1);
+    final int[][] scores = {
+      {MATE - 3, MATE - 5},
+      {3 - MATE, 5 - MATE},
+      {TB_WIN - 3, TB_WIN - 5},
+      {3 - TB_WIN, 5 - TB_WIN},
+      {150, 150}
+    };
+
+    for (final int[] score : scores) {
+      table.store(KEY, Move.NO_MOVE, score[0], 4, BOUND_EXACT, 3);
+      assertThat(score(table.probe(KEY), 5), is(score[1]));
+    }
+  }
+}
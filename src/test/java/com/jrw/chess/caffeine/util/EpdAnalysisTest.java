@@ -0,0 +1,79 @@
+package com.jrw.chess.caffeine.util;
+
+import com.jrw.chess.caffeine.Engine;
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Limits;
+import com.jrw.chess.caffeine.search.Move;
+import com.jrw.chess.caffeine.search.MoveGenerator;
+import com.jrw.chess.caffeine.search.Search;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class EpdAnalysisTest {
+  private static final int DEPTH = 3;
+
+  @Test
+  void analyseTest() throws Exception {
+    final Path path = Path.of(getClass().getResource("/mate-in-1.epd").toURI());
+    final List<String> lines = Files.readAllLines(path);
+    final StringWriter out = new StringWriter();
+    final EpdAnalysis analysis = new EpdAnalysis(3, 1, Limits.builder().depth(DEPTH).build());
+
+    try (final EpdReader in = new EpdReader(path)) {
+      assertThat(analysis.analyse(in, out), is((long) lines.size()));
+    }
+
+    final String[] results = out.toString().split("\\R");
+    final Epd epd = new Epd(new Board(Engine.START_POSITION));
+    assertThat(results.length, is(lines.size()));
+
+    for (int i = 0; i < results.length; i++) {
+      final String fen = String.join(" ", List.of(StringUtils.split(lines.get(i))).subList(0, 4));
+      assertThat(results[i], startsWith(fen + " pv "));
+      assertThat(results[i], containsString("; ce " + (Search.MATE - 1) + "; acd "));
+
+      epd.parse(results[i]);
+      assertThat(epd.bestMoveCount(), is(1));
+
+      final Board board = epd.board();
+      board.make(epd.bestMove(0));
+      assertThat(board.inCheck() && MoveGenerator.countLegalMoves(board) == 0, is(true));
+    }
+  }
+
+  @Test
+  void sanTest() throws Exception {
+    final String input =
+        "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - id \"castle; mate\"; bm Ra8+; ce 0;\n"
+            + "7k/8/8/8/8/8/R7/R6K w - - c0 \"two rooks\";\n";
+    final StringWriter out = new StringWriter();
+    final EpdAnalysis analysis = new EpdAnalysis(1, 1, Limits.builder().depth(2).build());
+    analysis.analyse(
+        new EpdReader(ByteBuffer.wrap(input.getBytes(StandardCharsets.US_ASCII))), out);
+
+    final String[] results = out.toString().split("\\R");
+    assertThat(results[0], startsWith("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - id \"castle; mate\"; bm "));
+    assertThat(results[1], startsWith("7k/8/8/8/8/8/R7/R6K w - - c0 \"two rooks\"; bm R"));
+
+    final Epd epd = new Epd(new Board(Engine.START_POSITION));
+    final StringBuilder s = new StringBuilder();
+    epd.parse("7k/8/8/R7/8/8/8/R5K1 w - -");
+    assertThat(epd.san(Move.parse("a1a3"), s).toString(), is("R1a3"));
+
+    epd.parse("4k3/8/8/8/8/8/8/R3K2R w KQ -");
+    s.setLength(0);
+    assertThat(epd.san(Move.parse("e1c1"), s).toString(), is("O-O-O"));
+  }
+}
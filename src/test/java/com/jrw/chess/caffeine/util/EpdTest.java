@@ -0,0 +1,106 @@
+package com.jrw.chess.caffeine.util;
+
+import com.jrw.chess.caffeine.Engine;
+import com.jrw.chess.caffeine.search.Board;
+import com.jrw.chess.caffeine.search.Move;
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.jrw.chess.caffeine.core.Square.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class EpdTest {
+  @TestFactory
+  Stream<DynamicTest> epdReaderTest() {
+    return Stream.of("perftsuite", "mate-in-1", "mate-in-2", "mate-in-3").map(this::createTest);
+  }
+
+  @SneakyThrows
+  DynamicTest createTest(final String name) {
+    final Path path = Path.of(getClass().getResource("/" + name + ".epd").toURI());
+    final List<String> lines = Files.readAllLines(path);
+
+    return DynamicTest.dynamicTest(
+        name,
+        () -> {
+          final Epd epd = new Epd(new Board(Engine.START_POSITION));
+          int count = 0;
+
+          try (final EpdReader reader = new EpdReader(path)) {
+            while (reader.next(epd)) {
+              verify(epd, lines.get(count++));
+            }
+          }
+          assertThat(count, is(lines.size()));
+        });
+  }
+
+  @Test
+  void operationsTest() {
+    final Epd epd = new Epd(new Board(Engine.START_POSITION));
+    epd.parse(
+        "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - bm O-O O-O-O; am Rxa8+; id \"castles\"; c0 \"a; b\";");
+
+    assertThat(epd.bestMoveCount(), is(2));
+    assertThat(Move.string(epd.bestMove(0)), is("e1g1"));
+    assertThat(Move.string(epd.bestMove(1)), is("e1c1"));
+    assertThat(epd.avoidMoveCount(), is(1));
+    assertThat(Move.string(epd.avoidMove(0)), is("a1a8"));
+    assertThat(epd.id().toString(), is("castles"));
+    assertThat(epd.comment().toString(), is("a; b"));
+
+    epd.parse("8/P7/8/8/8/8/8/k6K w - - bm a8=N; D1 5");
+    assertThat(Move.string(epd.bestMove(0)), is("a7a8n"));
+    assertThat(epd.perft(1), is(5L));
+    assertThat(epd.perft(2), is(-1L));
+  }
+
+  @Test
+  void toFenTest() {
+    final Board board = new Board(Engine.START_POSITION);
+    assertThat(board.toFen(), is(Engine.START_POSITION));
+
+    board.make(Move.create(E2, E4));
+    board.make(Move.create(E7, E5));
+    board.make(Move.create(G1, F3));
+    assertThat(board.toFen(), is("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2"));
+  }
+
+  private void verify(final Epd epd, final String line) {
+    final Board board = epd.board();
+    final String fen = board.toFen();
+
+    assertThat(new Board(fen).key(), is(board.key()));
+    assertThat(new Board(fen).toFen(), is(fen));
+
+    final String[] operations = StringUtils.split(line, ";");
+    for (final String operation : Arrays.copyOfRange(operations, 1, operations.length)) {
+      final String[] tokens = StringUtils.split(operation);
+      if (tokens[0].startsWith("D")) {
+        assertThat(
+            epd.perft(Integer.parseInt(tokens[0].substring(1))), is(Long.parseLong(tokens[1])));
+      }
+    }
+
+    final String[] tokens = StringUtils.split(StringUtils.substringBefore(line, ";"));
+    if (tokens.length > 5 && tokens[4].equals("bm")) {
+      assertThat(epd.bestMoveCount(), is(tokens.length - 5));
+      for (int i = 5; i < tokens.length; i++) {
+        if (tokens[i].startsWith("O-O")) continue;
+
+        final String expected = tokens[i].replaceAll("^[NBRQK]|[-x+#]", "").toLowerCase();
+        assertThat(Move.string(epd.bestMove(i - 5)), is(expected));
+      }
+    }
+  }
+}
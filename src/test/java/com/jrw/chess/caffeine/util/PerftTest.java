@@ -10,12 +10,15 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class PerftTest {
+  private final PerftTable table = new PerftTable(16);
+
   @TestFactory
   Stream<DynamicTest> perftTest() throws Exception {
     final URL url = getClass().getResource("/perftsuite.epd");
@@ -25,6 +28,34 @@ public class PerftTest {
     return Files.lines(path).flatMap(this::createTests);
   }
 
+  @TestFactory
+  Stream<DynamicTest> hashedPerftTest() throws Exception {
+    final URL url = getClass().getResource("/perftsuite.epd");
+    final URI uri = url.toURI();
+    final Path path = Path.of(uri);
+
+    return Files.lines(path).flatMap(this::createHashedTests);
+  }
+
+  Stream<DynamicTest> createHashedTests(final String line) {
+    final String[] tokens = StringUtils.split(line, ";");
+    final String fen = tokens[0];
+
+    return Arrays.stream(tokens, 1, tokens.length)
+        .filter(token -> token.startsWith("D5 "))
+        .map(
+            token ->
+                DynamicTest.dynamicTest(
+                    fen + " hashed " + token,
+                    () -> {
+                      final Board board = new Board(fen);
+                      final long expected = Long.parseLong(StringUtils.split(token)[1]);
+                      final long actual =
+                          new Perft(board, ForkJoinPool.commonPool(), table).count(5);
+                      assertThat(actual, is(expected));
+                    }));
+  }
+
   Stream<DynamicTest> createTests(final String line) {
     final String[] tokens = StringUtils.split(line, ";");
     final String fen = tokens[0];
@@ -41,7 +72,7 @@ public class PerftTest {
         fen + " " + result,
         () -> {
           final Board board = new Board(fen);
-          final long actual = Perft.count(board, depth);
+          final long actual = new Perft(board, ForkJoinPool.commonPool()).count(depth);
           assertThat(actual, is(expected));
         });
   }